@@ -0,0 +1,139 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j.benchmarks;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.logging.Formatter;
+
+import org.jboss.logmanager.ExtHandler;
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.LogContext;
+import org.jboss.logmanager.Logger;
+import org.jboss.logmanager.formatters.PatternFormatter;
+
+/**
+ * Handlers used as the sink for the benchmarks.
+ */
+final class BenchmarkHandlers {
+
+    /**
+     * The name of the logger all benchmarks log to.
+     */
+    static final String LOGGER_NAME = "org.jboss.logmanager.log4j.benchmarks";
+
+    /**
+     * The value of the {@code handler} parameter for the {@link NullHandler}.
+     */
+    static final String NULL = "null";
+
+    /**
+     * The value of the {@code handler} parameter for the {@link QueueHandler}.
+     */
+    static final String QUEUE = "queue";
+
+    private BenchmarkHandlers() {
+    }
+
+    /**
+     * Configures the JBoss Log Manager logger used for the benchmarks.
+     *
+     * @param level   the level for the logger
+     * @param handler the type of the handler, either {@link #NULL} or {@link #QUEUE}
+     *
+     * @return the configured logger
+     */
+    static Logger configure(final java.util.logging.Level level, final String handler) {
+        final Logger logger = LogContext.getLogContext().getLogger(LOGGER_NAME);
+        logger.setLevel(level);
+        logger.setUseParentHandlers(false);
+        logger.setHandlers(new java.util.logging.Handler[] { create(handler) });
+        return logger;
+    }
+
+    /**
+     * Resets the logger configured with {@link #configure(java.util.logging.Level, String)}.
+     */
+    static void reset() {
+        final Logger logger = LogContext.getLogContext().getLogger(LOGGER_NAME);
+        for (java.util.logging.Handler handler : logger.clearHandlers()) {
+            handler.close();
+        }
+        logger.setLevel(null);
+        logger.setUseParentHandlers(true);
+    }
+
+    private static ExtHandler create(final String handler) {
+        if (QUEUE.equals(handler)) {
+            return new QueueHandler(new PatternFormatter("%c %p %X %x %s"));
+        }
+        return new NullHandler();
+    }
+
+    /**
+     * A handler which discards every record. This measures the baseline cost of creating the record.
+     */
+    static class NullHandler extends ExtHandler {
+
+        @Override
+        protected void doPublish(final ExtLogRecord record) {
+        }
+    }
+
+    /**
+     * A handler similar to the test queue handler which formats each record and keeps a bounded number of the most
+     * recent records. Formatting the record forces the message, MDC and NDC to be rendered as a real handler would.
+     */
+    static class QueueHandler extends ExtHandler {
+        private static final int LIMIT = 1024;
+        private final Deque<ExtLogRecord> collected = new ArrayDeque<>(LIMIT);
+        private volatile String lastFormatted;
+
+        QueueHandler(final Formatter formatter) {
+            setFormatter(formatter);
+        }
+
+        @Override
+        protected void doPublish(final ExtLogRecord record) {
+            lastFormatted = getFormatter().format(record);
+            lock.lock();
+            try {
+                if (collected.size() == LIMIT) {
+                    collected.pollFirst();
+                }
+                collected.addLast(record);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void close() throws SecurityException {
+            lock.lock();
+            try {
+                collected.clear();
+                lastFormatted = null;
+            } finally {
+                lock.unlock();
+            }
+            super.close();
+        }
+    }
+}
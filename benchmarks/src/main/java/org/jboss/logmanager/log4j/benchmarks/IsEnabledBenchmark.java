@@ -0,0 +1,106 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the {@code isEnabled()} checks of the log4j logger. The logger is configured at {@code INFO} so
+ * {@code DEBUG} checks are disabled and {@code INFO} checks are enabled.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.util.logging.manager=org.jboss.logmanager.LogManager")
+@State(Scope.Benchmark)
+public class IsEnabledBenchmark {
+    private final Marker marker = MarkerManager.getMarker("BENCHMARK");
+    private final Object p0 = "value";
+    private Logger logger;
+
+    @Setup
+    public void setup() {
+        BenchmarkHandlers.configure(org.jboss.logmanager.Level.INFO, BenchmarkHandlers.NULL);
+        logger = LogManager.getLogger(BenchmarkHandlers.LOGGER_NAME);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkHandlers.reset();
+    }
+
+    @Benchmark
+    public boolean debugDisabled() {
+        return logger.isDebugEnabled();
+    }
+
+    @Benchmark
+    public boolean debugDisabledMarker() {
+        return logger.isDebugEnabled(marker);
+    }
+
+    @Benchmark
+    public boolean traceDisabledLevel() {
+        return logger.isEnabled(Level.TRACE);
+    }
+
+    @Benchmark
+    public void debugDisabledLog() {
+        logger.debug("Disabled message {}", p0);
+    }
+
+    @Benchmark
+    public void debugDisabledFluent() {
+        logger.atDebug().log("Disabled message {}", p0);
+    }
+
+    @Benchmark
+    public boolean infoEnabled() {
+        return logger.isInfoEnabled();
+    }
+
+    @Benchmark
+    public boolean infoEnabledMarker() {
+        return logger.isInfoEnabled(marker);
+    }
+
+    @Benchmark
+    public boolean errorEnabledLevel() {
+        return logger.isEnabled(Level.ERROR);
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks enabled log calls through the log4j logger, which end up in {@code JBossLogger.logMessage()}.
+ * <p>
+ * Each benchmark is run against a {@linkplain BenchmarkHandlers.NullHandler null handler} baseline and a
+ * {@linkplain BenchmarkHandlers.QueueHandler queue handler} which formats the record. Each is also run with an empty
+ * and a populated {@link ThreadContext} map and stack.
+ * </p>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.util.logging.manager=org.jboss.logmanager.LogManager")
+@State(Scope.Benchmark)
+public class LogMessageBenchmark {
+
+    @Param({ BenchmarkHandlers.NULL, BenchmarkHandlers.QUEUE })
+    public String handler;
+
+    private final Object p0 = "value0";
+    private final Object p1 = 1;
+    private final Object p2 = 2L;
+    private final Object p3 = "value3";
+    private final Object p4 = 4;
+    private final Object p5 = 5L;
+    private final Object p6 = "value6";
+    private final Object p7 = 7;
+    private final Object p8 = 8L;
+    private final Object p9 = "value9";
+    private final Throwable throwable = new RuntimeException("Benchmark exception");
+    private Logger logger;
+
+    /**
+     * The {@link ThreadContext} is thread bound, it must be populated on the benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Context {
+
+        @Param({ "false", "true" })
+        public boolean threadContext;
+
+        @Setup
+        public void setup() {
+            ThreadContext.clearAll();
+            if (threadContext) {
+                for (int i = 0; i < 10; i++) {
+                    ThreadContext.put("key" + i, "value" + i);
+                }
+                ThreadContext.push("outer");
+                ThreadContext.push("middle");
+                ThreadContext.push("inner");
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            ThreadContext.clearAll();
+        }
+    }
+
+    @Setup
+    public void setup() {
+        BenchmarkHandlers.configure(org.jboss.logmanager.Level.INFO, handler);
+        logger = LogManager.getLogger(BenchmarkHandlers.LOGGER_NAME);
+    }
+
+    @TearDown
+    public void tearDown() {
+        BenchmarkHandlers.reset();
+    }
+
+    @Benchmark
+    public void params0(final Context context) {
+        logger.info("Benchmark message");
+    }
+
+    @Benchmark
+    public void params1(final Context context) {
+        logger.info("Benchmark message {}", p0);
+    }
+
+    @Benchmark
+    public void params3(final Context context) {
+        logger.info("Benchmark message {} {} {}", p0, p1, p2);
+    }
+
+    @Benchmark
+    public void params10(final Context context) {
+        logger.info("Benchmark message {} {} {} {} {} {} {} {} {} {}", p0, p1, p2, p3, p4, p5, p6, p7, p8, p9);
+    }
+
+    @Benchmark
+    public void throwable(final Context context) {
+        logger.error("Benchmark message {}", p0, throwable);
+    }
+
+    @Benchmark
+    public void fluent(final Context context) {
+        logger.atInfo().log("Benchmark message {} {} {}", p0, p1, p2);
+    }
+
+    @Benchmark
+    public void fluentThrowable(final Context context) {
+        logger.atError().withThrowable(throwable).log("Benchmark message {}", p0);
+    }
+}
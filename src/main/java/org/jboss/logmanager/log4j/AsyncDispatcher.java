@@ -0,0 +1,525 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.message.AsynchronouslyFormattable;
+import org.apache.logging.log4j.message.MapMessage;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ReusableMessage;
+import org.apache.logging.log4j.status.StatusLogger;
+import org.apache.logging.log4j.util.PropertiesUtil;
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.MDC;
+
+/**
+ * Hands log events off to a background thread which creates the {@link ExtLogRecord} and publishes it to the JBoss Log
+ * Manager logger.
+ * <p>
+ * Events are captured in the slots of a pre-allocated, bounded ring buffer. The buffer allows multiple producers and a
+ * single consumer thread. The consumer thread is started when the first event is published. What happens when the
+ * buffer is full is determined by the {@linkplain WaitStrategy wait strategy}.
+ * </p>
+ * <p>
+ * The event captures the state of the logging thread; the thread name and id, the time, the MDC and the NDC. Messages
+ * which are not {@linkplain AsynchronouslyFormattable asynchronously formattable} are formatted on the logging thread
+ * as the parameters may be mutable. Caller calculation is disabled for the records as the caller cannot be determined
+ * on the consumer thread. A location passed by the caller, e.g. from a {@link org.apache.logging.log4j.LogBuilder
+ * LogBuilder}, is used if present.
+ * </p>
+ */
+final class AsyncDispatcher {
+    private static final String PROPERTY_PREFIX = "org.jboss.logmanager.log4j.async";
+    private static final boolean ENABLED;
+    private static final int BUFFER_SIZE;
+    private static final WaitStrategy WAIT_STRATEGY;
+    private static final java.util.logging.Level DROP_LEVEL;
+    // The largest power of two an array can hold
+    private static final int MAX_BUFFER_SIZE = 1 << 30;
+    private static final int SPIN_TRIES = 1000;
+    private static final long PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10L);
+    private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+    private static final ClassValue<Boolean> ASYNC_FORMATTABLE = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(final Class<?> type) {
+            return type.isAnnotationPresent(AsynchronouslyFormattable.class);
+        }
+    };
+
+    static {
+        final PropertiesUtil properties = PropertiesUtil.getProperties();
+        ENABLED = properties.getBooleanProperty(PROPERTY_PREFIX);
+        BUFFER_SIZE = properties.getIntegerProperty(PROPERTY_PREFIX + ".bufferSize", 8192);
+        WAIT_STRATEGY = WaitStrategy.parse(properties.getStringProperty(PROPERTY_PREFIX + ".waitStrategy"));
+        DROP_LEVEL = LevelTranslator.getInstance()
+                .translateLevel(org.apache.logging.log4j.Level.toLevel(properties.getStringProperty(PROPERTY_PREFIX
+                        + ".dropLevel"), org.apache.logging.log4j.Level.INFO));
+    }
+
+    /**
+     * Determines how threads wait when the ring buffer is full or, for the consumer thread, empty.
+     */
+    enum WaitStrategy {
+        /**
+         * Logging threads block until a slot is available. The consumer thread parks until an event is published.
+         */
+        BLOCK,
+        /**
+         * Events at or below the drop level are discarded if the buffer is full. All other events block as with
+         * {@link #BLOCK}.
+         */
+        DROP,
+        /**
+         * Logging threads and the consumer thread spin for a short period before parking. This lowers the latency of
+         * the hand-off at the cost of CPU time.
+         */
+        SPIN,
+        ;
+
+        static WaitStrategy parse(final String value) {
+            if (value == null || value.isBlank()) {
+                return BLOCK;
+            }
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                StatusLogger.getLogger().warn("Invalid async wait strategy {}. Using {}.", value, BLOCK);
+                return BLOCK;
+            }
+        }
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final WaitStrategy waitStrategy;
+    private final int dropLevel;
+    private final AtomicLong tail = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+    private volatile long head;
+    private volatile boolean consumerParked;
+    private volatile boolean closed;
+    private volatile boolean dropping;
+    private volatile Thread consumer;
+    private long reportedDrops;
+
+    /**
+     * Creates a new dispatcher.
+     *
+     * @param bufferSize   the minimum number of events the buffer can hold, rounded up to the next power of two and
+     *                     limited to 2<sup>30</sup>
+     * @param waitStrategy the wait strategy
+     * @param dropLevel    the level at or below which events are dropped, only used with {@link WaitStrategy#DROP}
+     */
+    AsyncDispatcher(final int bufferSize, final WaitStrategy waitStrategy, final java.util.logging.Level dropLevel) {
+        final int size;
+        if (bufferSize < 2) {
+            size = 2;
+        } else if (bufferSize > MAX_BUFFER_SIZE) {
+            size = MAX_BUFFER_SIZE;
+        } else {
+            size = Integer.highestOneBit(bufferSize - 1) << 1;
+        }
+        slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot(i);
+        }
+        mask = size - 1;
+        this.waitStrategy = waitStrategy;
+        this.dropLevel = dropLevel.intValue();
+    }
+
+    /**
+     * Creates a dispatcher if asynchronous logging has been enabled with the
+     * {@code org.jboss.logmanager.log4j.async} property.
+     *
+     * @return a new dispatcher or {@code null} if asynchronous logging is not enabled
+     */
+    static AsyncDispatcher createIfEnabled() {
+        return ENABLED ? new AsyncDispatcher(BUFFER_SIZE, WAIT_STRATEGY, DROP_LEVEL) : null;
+    }
+
+    /**
+     * Captures the event and adds it to the buffer.
+     *
+     * @param logger     the logger to publish the record to
+     * @param level      the level of the record
+     * @param fqcn       the fully qualified class name of the logger
+     * @param marker     the marker, if any
+     * @param accepted   {@code true} if the level check of the logger should be bypassed
+     * @param message    the message
+     * @param thrown     the cause, if any
+     * @param contextMap the immutable context of the logging thread or {@code null} to copy the MDC
+     * @param ndc        the NDC of the logging thread
+     * @param location   the location of the caller, if known
+     *
+     * @return {@code true} if the event was handled, {@code false} if the event must be logged on the calling thread
+     */
+    boolean publish(final org.jboss.logmanager.Logger logger, final java.util.logging.Level level, final String fqcn,
+            final Marker marker, final boolean accepted, final Message message, final Throwable thrown,
+            final Map<String, ?> contextMap, final String ndc, final StackTraceElement location) {
+        final Thread currentThread = Thread.currentThread();
+        // Events logged from the consumer thread, e.g. by a handler, are logged directly as the thread could otherwise
+        // wait on itself
+        if (closed || currentThread == consumer) {
+            return false;
+        }
+        final long pos = claim(level);
+        if (pos < 0L) {
+            return pos == -1L;
+        }
+        final Slot slot = slots[(int) pos & mask];
+        final Message snapshot = message instanceof ReusableMessage ? ((ReusableMessage) message).memento() : message;
+        slot.logger = logger;
+        slot.level = level;
+        slot.fqcn = fqcn;
+        slot.marker = marker;
+        slot.accepted = accepted;
+        if (ASYNC_FORMATTABLE.get(snapshot.getClass())) {
+            slot.message = snapshot;
+        } else {
+            slot.formattedMessage = MessageLogRecord.format(snapshot);
+        }
+        if (snapshot instanceof MapMessage) {
+            slot.fields = JBossLogger.getFields((MapMessage<?, ?>) snapshot);
+        }
+        slot.parameters = snapshot.getParameters();
+        slot.thrown = thrown;
+        slot.ndc = ndc;
+        slot.location = location;
+        // Any other context map is immutable and does not need to be copied
+        slot.mdc = contextMap == null ? MDC.copyObject() : contextMap;
+        slot.threadName = currentThread.getName();
+        slot.threadId = currentThread.getId();
+        slot.instant = Instant.now();
+        // Publish the event
+        slot.sequence = pos + 1L;
+        final Thread consumer = this.consumer;
+        if (consumer == null) {
+            startConsumer();
+        } else if (closed && !consumer.isAlive()) {
+            // The dispatcher was closed while the event was being captured and the consumer has already exited
+            drainRemaining();
+        } else if (consumerParked) {
+            LockSupport.unpark(consumer);
+        }
+        return true;
+    }
+
+    /**
+     * Waits until all events published before this method was invoked have been logged. If the dispatcher has been
+     * closed, this returns immediately.
+     */
+    void flush() {
+        final Thread consumer = this.consumer;
+        if (consumer == null || consumer == Thread.currentThread()) {
+            return;
+        }
+        final long target = tail.get();
+        while (head < target && consumer.isAlive()) {
+            LockSupport.unpark(consumer);
+            LockSupport.parkNanos(this, TimeUnit.MICROSECONDS.toNanos(100L));
+        }
+    }
+
+    /**
+     * Drains the buffer and stops the consumer thread. Any events logged after this has been invoked are logged on
+     * the calling thread.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // Wake any threads waiting for a slot
+        signalProducers();
+        final Thread consumer = this.consumer;
+        if (consumer != null && consumer != Thread.currentThread()) {
+            LockSupport.unpark(consumer);
+            try {
+                consumer.join(TimeUnit.SECONDS.toMillis(30L));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (!consumer.isAlive()) {
+                drainRemaining();
+            }
+        }
+        reportDropped();
+    }
+
+    /**
+     * Returns the number of events which have been dropped because the buffer was full.
+     *
+     * @return the number of dropped events
+     */
+    long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    /**
+     * Claims the next sequence in the buffer.
+     *
+     * @return the sequence, {@code -1} if the event was dropped or {@code -2} if the dispatcher was closed
+     */
+    private long claim(final java.util.logging.Level level) {
+        int tries = 0;
+        long pos = tail.get();
+        for (;;) {
+            final long dif = slots[(int) pos & mask].sequence - pos;
+            if (dif == 0L) {
+                if (tail.compareAndSet(pos, pos + 1L)) {
+                    return pos;
+                }
+            } else if (dif < 0L) {
+                // The buffer is full
+                if (closed) {
+                    return -2L;
+                }
+                if (waitStrategy == WaitStrategy.DROP && level.intValue() <= dropLevel) {
+                    dropped.increment();
+                    // Reported by the consumer once the buffer has room again
+                    if (!dropping) {
+                        dropping = true;
+                    }
+                    return -1L;
+                }
+                if (waitStrategy == WaitStrategy.SPIN && tries++ < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    awaitSlot(pos);
+                }
+            }
+            pos = tail.get();
+        }
+    }
+
+    private void awaitSlot(final long pos) {
+        waitingProducers.incrementAndGet();
+        lock.lock();
+        try {
+            if (!closed && slots[(int) pos & mask].sequence - pos < 0L) {
+                notFull.awaitNanos(PARK_NANOS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
+            waitingProducers.decrementAndGet();
+        }
+    }
+
+    private void signalProducers() {
+        if (waitingProducers.get() > 0) {
+            lock.lock();
+            try {
+                notFull.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void consume() {
+        int idle = 0;
+        long pos = head;
+        for (;;) {
+            final Slot slot = slots[(int) pos & mask];
+            if (slot.sequence == pos + 1L) {
+                log(slot, pos);
+                head = ++pos;
+                idle = 0;
+            } else if (closed && pos == tail.get()) {
+                break;
+            } else if (waitStrategy == WaitStrategy.SPIN && idle++ < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else {
+                consumerParked = true;
+                // Check again to not miss an event published before the flag was set
+                if (slot.sequence != pos + 1L && !closed) {
+                    LockSupport.parkNanos(this, PARK_NANOS);
+                }
+                consumerParked = false;
+            }
+        }
+    }
+
+    /**
+     * Logs the events which were published after the consumer thread exited.
+     */
+    private synchronized void drainRemaining() {
+        long pos = head;
+        Slot slot;
+        while ((slot = slots[(int) pos & mask]).sequence == pos + 1L) {
+            log(slot, pos);
+            head = ++pos;
+        }
+    }
+
+    private void log(final Slot slot, final long pos) {
+        final org.jboss.logmanager.Logger logger = slot.logger;
+        final boolean accepted = slot.accepted;
+        ExtLogRecord record = null;
+        try {
+            record = slot.createRecord();
+        } catch (Throwable t) {
+            StatusLogger.getLogger().error("Failed to create the record for an asynchronous event", t);
+        }
+        slot.clear();
+        // Release the slot for the next cycle of the buffer before the record is published to the handlers
+        slot.sequence = pos + slots.length;
+        signalProducers();
+        if (dropping) {
+            reportDropped();
+        }
+        if (record != null) {
+            try {
+                if (accepted) {
+                    logger.logRaw(record);
+                } else {
+                    logger.log(record);
+                }
+            } catch (Throwable t) {
+                StatusLogger.getLogger().error("Failed to log an asynchronous event", t);
+            }
+        }
+    }
+
+    /**
+     * Reports the events which have been dropped since the last report.
+     */
+    private synchronized void reportDropped() {
+        dropping = false;
+        final long total = getDroppedCount();
+        final long count = total - reportedDrops;
+        if (count > 0L) {
+            reportedDrops = total;
+            StatusLogger.getLogger().warn(
+                    "Dropped {} asynchronous log events as the buffer was full. {} events have been dropped in total.",
+                    count, total);
+        }
+    }
+
+    private void startConsumer() {
+        synchronized (this) {
+            if (consumer != null) {
+                return;
+            }
+            final Thread thread;
+            if (System.getSecurityManager() == null) {
+                thread = createThread();
+            } else {
+                thread = AccessController.doPrivileged((PrivilegedAction<Thread>) this::createThread);
+            }
+            consumer = thread;
+            thread.start();
+        }
+    }
+
+    private Thread createThread() {
+        final Thread thread = new Thread(this::consume, "log4j2-jboss-logmanager-async-" + THREAD_COUNTER.incrementAndGet());
+        thread.setDaemon(true);
+        // Do not leak the class loader of the thread which logged the first event
+        thread.setContextClassLoader(null);
+        return thread;
+    }
+
+    private static class Slot {
+        volatile long sequence;
+        org.jboss.logmanager.Logger logger;
+        java.util.logging.Level level;
+        String fqcn;
+        Marker marker;
+        boolean accepted;
+        Message message;
+        String formattedMessage;
+        Object[] parameters;
+        Map<String, Object> fields;
+        Throwable thrown;
+        String ndc;
+        StackTraceElement location;
+        Map<String, ?> mdc;
+        String threadName;
+        long threadId;
+        Instant instant;
+
+        private Slot(final long sequence) {
+            this.sequence = sequence;
+        }
+
+        ExtLogRecord createRecord() {
+            final MessageLogRecord record = new MessageLogRecord(level, message, fqcn);
+            if (message == null) {
+                record.setMessage(formattedMessage, ExtLogRecord.FormatStyle.NO_FORMAT);
+            }
+            if (parameters != null) {
+                record.setParameters(parameters);
+            }
+            // The map has already been copied, or is immutable, when the event was captured
+            record.setContextMap(mdc);
+            record.setFields(fields);
+            record.setNdc(ndc);
+            record.setThrown(thrown);
+            record.setMarker(marker);
+            record.setThreadName(threadName);
+            record.setLongThreadID(threadId);
+            record.setInstant(instant);
+            if (location == null) {
+                record.disableCallerCalculation();
+            } else {
+                JBossLogger.setSource(record, location);
+            }
+            return record;
+        }
+
+        void clear() {
+            logger = null;
+            level = null;
+            fqcn = null;
+            marker = null;
+            accepted = false;
+            message = null;
+            formattedMessage = null;
+            parameters = null;
+            fields = null;
+            thrown = null;
+            ndc = null;
+            location = null;
+            mdc = null;
+            threadName = null;
+            instant = null;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.logging.log4j.util.PropertiesUtil;
+
+/**
+ * Resolves the location of the caller of a logger with a {@link StackWalker}.
+ * <p>
+ * The {@code org.jboss.logmanager.log4j.location} property determines whether the caller is resolved. With the default,
+ * {@code lazy}, the caller is only resolved when a handler or formatter first requests it. With {@code none} the caller
+ * is never resolved, which avoids walking the stack even if a formatter includes the caller.
+ * </p>
+ * <p>
+ * Resolved locations are cached per call site, the method and bytecode index in the calling class, so repeated calls
+ * from the same line do not create a new {@link StackTraceElement}. The cache can be disabled with the
+ * {@code org.jboss.logmanager.log4j.location.cache} property.
+ * </p>
+ */
+final class CallerLocator {
+    private static final String PROPERTY_PREFIX = "org.jboss.logmanager.log4j.location";
+    private static final boolean ENABLED;
+    private static final boolean CACHE;
+    private static final StackWalker STACK_WALKER;
+    private static final ClassValue<ConcurrentMap<CallSite, StackTraceElement>> CALL_SITES = new ClassValue<>() {
+        @Override
+        protected ConcurrentMap<CallSite, StackTraceElement> computeValue(final Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    static {
+        final PropertiesUtil properties = PropertiesUtil.getProperties();
+        ENABLED = !"none".equalsIgnoreCase(properties.getStringProperty(PROPERTY_PREFIX));
+        CACHE = properties.getBooleanProperty(PROPERTY_PREFIX + ".cache", true);
+        // The class reference is required to key the cache on the class
+        if (System.getSecurityManager() == null) {
+            STACK_WALKER = createStackWalker();
+        } else {
+            STACK_WALKER = AccessController.doPrivileged((PrivilegedAction<StackWalker>) CallerLocator::createStackWalker);
+        }
+    }
+
+    private CallerLocator() {
+    }
+
+    /**
+     * Indicates whether the caller should be resolved.
+     *
+     * @return {@code true} if the caller should be resolved, {@code false} if the caller should never be resolved
+     */
+    static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Returns the location of the first frame after the frames of the logger class. The frames before the first frame
+     * of the logger class are ignored.
+     *
+     * @param fqcn the fully qualified class name of the logger
+     *
+     * @return the location of the caller or {@code null} if the logger class was not found on the stack
+     */
+    static StackTraceElement locate(final String fqcn) {
+        return STACK_WALKER.walk(frames -> frames
+                .dropWhile(frame -> !fqcn.equals(frame.getClassName()))
+                .dropWhile(frame -> fqcn.equals(frame.getClassName()))
+                .findFirst()
+                .map(CallerLocator::toStackTraceElement)
+                .orElse(null));
+    }
+
+    private static StackTraceElement toStackTraceElement(final StackWalker.StackFrame frame) {
+        final int bci = frame.getByteCodeIndex();
+        if (!CACHE || bci < 0) {
+            return frame.toStackTraceElement();
+        }
+        final ConcurrentMap<CallSite, StackTraceElement> callSites = CALL_SITES.get(frame.getDeclaringClass());
+        final CallSite callSite = new CallSite(frame.getMethodName(), frame.getDescriptor(), bci);
+        final StackTraceElement result = callSites.get(callSite);
+        if (result != null) {
+            return result;
+        }
+        return callSites.computeIfAbsent(callSite, c -> frame.toStackTraceElement());
+    }
+
+    private static StackWalker createStackWalker() {
+        return StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+    }
+
+    private static class CallSite {
+        private final String methodName;
+        // Overloaded methods have the same name
+        private final String descriptor;
+        private final int bci;
+
+        private CallSite(final String methodName, final String descriptor, final int bci) {
+            this.methodName = methodName;
+            this.descriptor = descriptor;
+            this.bci = bci;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * methodName.hashCode() + descriptor.hashCode()) + bci;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof CallSite)) {
+                return false;
+            }
+            final CallSite other = (CallSite) obj;
+            return bci == other.bci && Objects.equals(methodName, other.methodName)
+                    && Objects.equals(descriptor, other.descriptor);
+        }
+    }
+}
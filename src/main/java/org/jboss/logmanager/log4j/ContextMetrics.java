@@ -0,0 +1,194 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.lang.management.ManagementFactory;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.status.StatusLogger;
+
+/**
+ * The metrics of the loggers of a {@link JBossLoggerContext}.
+ */
+final class ContextMetrics implements LoggerMetricsMXBean {
+    private static final AtomicInteger COUNTER = new AtomicInteger();
+
+    private final ConcurrentMap<String, LoggerMetrics> loggers = new ConcurrentHashMap<>();
+    private final String id = Integer.toString(COUNTER.incrementAndGet());
+    private volatile ObjectName objectName;
+
+    /**
+     * Creates the metrics for a logger context and registers them with the platform MBean server.
+     *
+     * @return the metrics or {@code null} if metrics are not enabled
+     */
+    static ContextMetrics createIfEnabled() {
+        if (LoggerMetrics.isEnabled()) {
+            final ContextMetrics metrics = new ContextMetrics();
+            metrics.register();
+            return metrics;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the metrics for the logger, creating them if required.
+     *
+     * @param name the name of the logger
+     *
+     * @return the metrics for the logger
+     */
+    LoggerMetrics getLoggerMetrics(final String name) {
+        final LoggerMetrics metrics = loggers.get(name);
+        if (metrics != null) {
+            return metrics;
+        }
+        return loggers.computeIfAbsent(name, n -> new LoggerMetrics());
+    }
+
+    @Override
+    public String[] getLoggerNames() {
+        return loggers.keySet().stream().sorted().toArray(String[]::new);
+    }
+
+    @Override
+    public Map<String, Long> getEvents() {
+        return collect(LoggerMetrics::getEventCount);
+    }
+
+    @Override
+    public Map<String, Long> getEnabledChecks() {
+        return collect(LoggerMetrics::getEnabledCheckCount);
+    }
+
+    @Override
+    public Map<String, Long> getDroppedEvents() {
+        return collect(LoggerMetrics::getDroppedEventCount);
+    }
+
+    @Override
+    public Map<String, Long> eventsByLevel(final String loggerName) {
+        final LoggerMetrics metrics = loggers.get(loggerName);
+        return metrics == null ? Collections.emptyMap() : metrics.getEvents();
+    }
+
+    @Override
+    public Map<String, Long> enabledChecksByLevel(final String loggerName) {
+        final LoggerMetrics metrics = loggers.get(loggerName);
+        return metrics == null ? Collections.emptyMap() : metrics.getEnabledChecks();
+    }
+
+    @Override
+    public Map<String, Long> latencyHistogram(final String loggerName) {
+        final LoggerMetrics metrics = loggers.get(loggerName);
+        return metrics == null ? Collections.emptyMap() : metrics.getLatencyHistogram();
+    }
+
+    @Override
+    public void reset() {
+        loggers.values().forEach(LoggerMetrics::reset);
+    }
+
+    /**
+     * Returns the name the metrics are registered with.
+     *
+     * @return the object name or {@code null} if the metrics are not registered
+     */
+    ObjectName getObjectName() {
+        return objectName;
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server. Failures are reported to the status logger.
+     */
+    void register() {
+        try {
+            final ObjectName objectName = new ObjectName("org.jboss.logmanager.log4j:type=LoggerMetrics,context=" + id);
+            if (System.getSecurityManager() == null) {
+                getMBeanServer().registerMBean(this, objectName);
+            } else {
+                AccessController.doPrivileged((PrivilegedAction<Object>) () -> {
+                    try {
+                        return getMBeanServer().registerMBean(this, objectName);
+                    } catch (JMException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+            this.objectName = objectName;
+        } catch (JMException | RuntimeException e) {
+            StatusLogger.getLogger().warn("Failed to register the logger metrics", e);
+        }
+    }
+
+    /**
+     * Unregisters the metrics from the platform MBean server if they were registered.
+     */
+    void unregister() {
+        final ObjectName objectName = this.objectName;
+        if (objectName == null) {
+            return;
+        }
+        this.objectName = null;
+        try {
+            if (System.getSecurityManager() == null) {
+                getMBeanServer().unregisterMBean(objectName);
+            } else {
+                AccessController.doPrivileged((PrivilegedAction<Object>) () -> {
+                    try {
+                        getMBeanServer().unregisterMBean(objectName);
+                        return null;
+                    } catch (JMException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+            }
+        } catch (JMException | RuntimeException e) {
+            StatusLogger.getLogger().warn("Failed to unregister the logger metrics", e);
+        }
+    }
+
+    private Map<String, Long> collect(final ToLongFunction<LoggerMetrics> function) {
+        final Map<String, Long> result = new TreeMap<>();
+        loggers.forEach((name, metrics) -> {
+            final long value = function.applyAsLong(metrics);
+            if (value > 0L) {
+                result.put(name, value);
+            }
+        });
+        return result;
+    }
+
+    private static MBeanServer getMBeanServer() {
+        return ManagementFactory.getPlatformMBeanServer();
+    }
+}
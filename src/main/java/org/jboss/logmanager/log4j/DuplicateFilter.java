@@ -0,0 +1,249 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.util.PropertiesUtil;
+
+/**
+ * Suppresses duplicate events of a single logger. Events are duplicates if they have the same level, the same message
+ * {@linkplain Message#getFormat() format} and the same type of throwable. The first event of a window is logged, the
+ * duplicates within the window are counted and reported once the window has expired.
+ * <p>
+ * Suppression is enabled with the {@code org.jboss.logmanager.log4j.suppressDuplicates} property, the length of the
+ * window in milliseconds. The number of tracked events is bounded by the
+ * {@code org.jboss.logmanager.log4j.suppressDuplicates.maxEntries} property. Events which cannot be tracked are logged.
+ * </p>
+ */
+final class DuplicateFilter {
+    private static final String PROPERTY_PREFIX = "org.jboss.logmanager.log4j.suppressDuplicates";
+    private static final long WINDOW;
+    private static final int MAX_ENTRIES;
+
+    static {
+        final PropertiesUtil properties = PropertiesUtil.getProperties();
+        WINDOW = TimeUnit.MILLISECONDS.toNanos(properties.getLongProperty(PROPERTY_PREFIX, 0L));
+        MAX_ENTRIES = properties.getIntegerProperty(PROPERTY_PREFIX + ".maxEntries", 1024);
+    }
+
+    /**
+     * Receives the number of times an event was repeated within a window.
+     */
+    interface Summary {
+
+        /**
+         * Invoked for an event which was repeated within a window which has expired.
+         *
+         * @param fqcn          the fully qualified class name of the caller which logged the first event of the window
+         * @param level         the level of the event
+         * @param format        the message format of the event
+         * @param throwableType the type of the throwable of the event or {@code null} if there was no throwable
+         * @param repeated      the number of suppressed duplicates
+         */
+        void repeated(String fqcn, Level level, String format, Class<?> throwableType, long repeated);
+    }
+
+    private final long window;
+    private final int maxEntries;
+    private final LongSupplier clock;
+    private final ConcurrentMap<Key, Window> windows = new ConcurrentHashMap<>();
+    private final AtomicLong nextFlush;
+
+    /**
+     * Creates a new duplicate filter.
+     *
+     * @param window     the length of the window in nanoseconds
+     * @param maxEntries the maximum number of events tracked
+     * @param clock      the source of the time in nanoseconds
+     */
+    DuplicateFilter(final long window, final int maxEntries, final LongSupplier clock) {
+        if (window <= 0L) {
+            throw new IllegalArgumentException("The window must be greater than 0");
+        }
+        this.window = window;
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+        nextFlush = new AtomicLong(clock.getAsLong() + window);
+    }
+
+    /**
+     * Creates a duplicate filter for a logger if duplicate suppression has been enabled.
+     *
+     * @return a new duplicate filter or {@code null} if duplicate suppression is not enabled
+     */
+    static DuplicateFilter createIfEnabled() {
+        return WINDOW > 0L ? new DuplicateFilter(WINDOW, MAX_ENTRIES, System::nanoTime) : null;
+    }
+
+    /**
+     * Checks whether the event is a duplicate of an event logged within the current window. The message is not
+     * formatted.
+     *
+     * @param fqcn    the fully qualified class name of the caller
+     * @param level   the level of the event
+     * @param message the message of the event
+     * @param thrown  the throwable of the event, if any
+     *
+     * @return {@code -1} if the event is a duplicate, otherwise the number of duplicates of the previous window of the
+     *         same event which have not been reported yet
+     */
+    // The format is only used as the key of the event, there is no replacement which does not format the message
+    @SuppressWarnings("deprecation")
+    long filter(final String fqcn, final Level level, final Message message, final Throwable thrown) {
+        final String format = message.getFormat();
+        if (format == null) {
+            return 0L;
+        }
+        final Key key = new Key(level, format, thrown == null ? null : thrown.getClass());
+        final long now = clock.getAsLong();
+        while (true) {
+            final Window current = windows.get(key);
+            if (current != null && now - current.start < window) {
+                if (current.increment()) {
+                    return -1L;
+                }
+                // The window has been retired by another thread, check again
+                continue;
+            }
+            if (current == null) {
+                if (windows.size() >= maxEntries) {
+                    // Too many events are tracked, the event is logged without being tracked
+                    return 0L;
+                }
+                if (windows.putIfAbsent(key, new Window(fqcn, now)) == null) {
+                    return 0L;
+                }
+            } else if (windows.replace(key, current, new Window(fqcn, now))) {
+                return current.retire();
+            }
+            // Another thread started a new window for the event, check again
+        }
+    }
+
+    /**
+     * Reports the duplicates of the windows which have expired and stops tracking the events. Unless all windows are
+     * flushed, this only checks the windows once per window length.
+     *
+     * @param all     {@code true} to report all windows, e.g. when the logger context is closed
+     * @param summary the summary to report the duplicates to
+     */
+    void flush(final boolean all, final Summary summary) {
+        final long now = clock.getAsLong();
+        if (!all) {
+            final long next = nextFlush.get();
+            if (now - next < 0L || !nextFlush.compareAndSet(next, now + window)) {
+                return;
+            }
+        }
+        final Iterator<Map.Entry<Key, Window>> iter = windows.entrySet().iterator();
+        while (iter.hasNext()) {
+            final Map.Entry<Key, Window> entry = iter.next();
+            final Window current = entry.getValue();
+            if ((all || now - current.start >= window) && windows.remove(entry.getKey(), current)) {
+                final long repeated = current.retire();
+                if (repeated > 0L) {
+                    final Key key = entry.getKey();
+                    summary.repeated(current.fqcn, key.level, key.format, key.throwableType, repeated);
+                }
+            }
+        }
+    }
+
+    private static class Key {
+        final Level level;
+        final String format;
+        final Class<?> throwableType;
+        private final int hash;
+
+        private Key(final Level level, final String format, final Class<?> throwableType) {
+            this.level = level;
+            this.format = format;
+            this.throwableType = throwableType;
+            hash = 31 * (31 * Objects.hashCode(level) + format.hashCode()) + Objects.hashCode(throwableType);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            final Key other = (Key) obj;
+            return Objects.equals(level, other.level) && format.equals(other.format)
+                    && throwableType == other.throwableType;
+        }
+    }
+
+    private static class Window {
+        // The count of a window which has been removed, duplicates are counted with the next window instead
+        private static final long RETIRED = -1L;
+        final String fqcn;
+        final long start;
+        private final AtomicLong repeated = new AtomicLong();
+
+        private Window(final String fqcn, final long start) {
+            this.fqcn = fqcn;
+            this.start = start;
+        }
+
+        /**
+         * Counts a duplicate unless the window has been retired.
+         *
+         * @return {@code true} if the duplicate was counted, {@code false} if the window has been retired
+         */
+        boolean increment() {
+            long current;
+            do {
+                current = repeated.get();
+                if (current == RETIRED) {
+                    return false;
+                }
+            } while (!repeated.compareAndSet(current, current + 1L));
+            return true;
+        }
+
+        /**
+         * Retires the window once it has been removed. Duplicates counted by other threads up to this point are
+         * included in the result, later duplicates are not counted by this window.
+         *
+         * @return the number of duplicates of the window
+         */
+        long retire() {
+            return repeated.getAndSet(RETIRED);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.spi.ObjectThreadContextMap;
+import org.apache.logging.log4j.spi.ReadOnlyThreadContextMap;
+import org.apache.logging.log4j.spi.ThreadContextMap;
+import org.apache.logging.log4j.util.PropertiesUtil;
+import org.apache.logging.log4j.util.SortedArrayStringMap;
+import org.apache.logging.log4j.util.StringMap;
+
+/**
+ * A {@link ThreadContextMap} implementation which stores the context of a thread in an immutable map. Each
+ * modification replaces the map of the current thread, so the map can be shared without being copied. Child threads
+ * inherit the map of the parent thread by reference and threads which never modify the context do not create a map.
+ * <p>
+ * This map is used instead of the {@link ThreadContextMDCMap} if the {@code org.jboss.logmanager.log4j.threadContextMap}
+ * property is set to {@code immutable}. The context is not shared with the {@link org.jboss.logmanager.MDC MDC}; the
+ * records logged through log4j contain the entries of this map.
+ * </p>
+ */
+public class ImmutableThreadContextMap implements ObjectThreadContextMap, ReadOnlyThreadContextMap {
+    private static final StringMap EMPTY_DATA;
+    // The default childValue() returns the parent value, which is safe to share as it is never modified
+    private static final InheritableThreadLocal<Context> CONTEXT = new InheritableThreadLocal<>();
+
+    static {
+        final SortedArrayStringMap data = new SortedArrayStringMap(0);
+        data.freeze();
+        EMPTY_DATA = data;
+    }
+
+    /**
+     * Indicates whether this map has been selected as the map of the provider with the
+     * {@code org.jboss.logmanager.log4j.threadContextMap} property.
+     *
+     * @return {@code true} if this map should be used instead of the {@link ThreadContextMDCMap}
+     */
+    static boolean isSelected() {
+        return "immutable".equalsIgnoreCase(PropertiesUtil.getProperties()
+                .getStringProperty("org.jboss.logmanager.log4j.threadContextMap"));
+    }
+
+    /**
+     * Indicates whether this map is used as the log4j {@link ThreadContext} map.
+     *
+     * @return {@code true} if this map is the installed {@code ThreadContext} map
+     */
+    static boolean isThreadContextMap() {
+        return ThreadContext.getThreadContextMap() instanceof ImmutableThreadContextMap;
+    }
+
+    /**
+     * Returns the context of the current thread. The returned map is immutable and can be kept without copying it.
+     *
+     * @return the context of the current thread
+     */
+    static Map<String, Object> getContextMap() {
+        final Context context = CONTEXT.get();
+        return context == null ? Collections.emptyMap() : context.values;
+    }
+
+    /**
+     * Returns the context of the current thread.
+     *
+     * @return the context or {@code null} if the context of the current thread is empty
+     */
+    static Context getContext() {
+        return CONTEXT.get();
+    }
+
+    /**
+     * Replaces the context of the current thread.
+     *
+     * @param context the context or {@code null} to clear the context
+     */
+    static void setContext(final Context context) {
+        if (context == null) {
+            CONTEXT.remove();
+        } else {
+            CONTEXT.set(context);
+        }
+    }
+
+    @Override
+    public void clear() {
+        CONTEXT.remove();
+    }
+
+    @Override
+    public boolean containsKey(final String key) {
+        return getContextMap().containsKey(key);
+    }
+
+    @Override
+    public String get(final String key) {
+        final Object value = getContextMap().get(key);
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public Map<String, String> getCopy() {
+        final Context context = CONTEXT.get();
+        return context == null ? new HashMap<>() : new HashMap<>(context.getStrings());
+    }
+
+    @Override
+    public Map<String, String> getImmutableMapOrNull() {
+        final Context context = CONTEXT.get();
+        return context == null ? null : context.getStrings();
+    }
+
+    @Override
+    public StringMap getReadOnlyContextData() {
+        final Context context = CONTEXT.get();
+        return context == null ? EMPTY_DATA : context.getData();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return CONTEXT.get() == null;
+    }
+
+    @Override
+    public void put(final String key, final String value) {
+        putValue(key, value);
+    }
+
+    @Override
+    public void putAll(final Map<String, String> map) {
+        putAllValues(map);
+    }
+
+    @Override
+    public void remove(final String key) {
+        final Map<String, Object> current = getContextMap();
+        if (current.containsKey(key)) {
+            final Map<String, Object> values = new HashMap<>(current);
+            values.remove(key);
+            set(values);
+        }
+    }
+
+    @Override
+    public void removeAll(final Iterable<String> keys) {
+        final Map<String, Object> values = new HashMap<>(getContextMap());
+        for (String key : keys) {
+            values.remove(key);
+        }
+        set(values);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> V getValue(final String key) {
+        return (V) getContextMap().get(key);
+    }
+
+    @Override
+    public <V> void putValue(final String key, final V value) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        final Map<String, Object> current = getContextMap();
+        if (!value.equals(current.get(key))) {
+            final Map<String, Object> values = new HashMap<>(current);
+            values.put(key, value);
+            set(values);
+        }
+    }
+
+    @Override
+    public <V> void putAllValues(final Map<String, V> values) {
+        final Map<String, Object> copy = new HashMap<>(getContextMap());
+        for (Map.Entry<String, V> entry : values.entrySet()) {
+            if (entry.getValue() == null) {
+                copy.remove(entry.getKey());
+            } else {
+                copy.put(entry.getKey(), entry.getValue());
+            }
+        }
+        set(copy);
+    }
+
+    private static void set(final Map<String, Object> values) {
+        if (values.isEmpty()) {
+            CONTEXT.remove();
+        } else {
+            CONTEXT.set(new Context(values));
+        }
+    }
+
+    static final class Context {
+        private final Map<String, Object> values;
+        // The views are only created when requested and are immutable as well
+        private volatile Map<String, String> strings;
+        private volatile StringMap data;
+
+        private Context(final Map<String, Object> values) {
+            this.values = Collections.unmodifiableMap(values);
+        }
+
+        Map<String, String> getStrings() {
+            Map<String, String> strings = this.strings;
+            if (strings == null) {
+                final Map<String, String> copy = new HashMap<>(values.size());
+                for (Map.Entry<String, Object> entry : values.entrySet()) {
+                    copy.put(entry.getKey(), entry.getValue().toString());
+                }
+                this.strings = strings = Collections.unmodifiableMap(copy);
+            }
+            return strings;
+        }
+
+        StringMap getData() {
+            StringMap data = this.data;
+            if (data == null) {
+                final SortedArrayStringMap copy = new SortedArrayStringMap(values);
+                copy.freeze();
+                this.data = data = copy;
+            }
+            return data;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import org.apache.logging.log4j.BridgeAware;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogBuilder;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.MessageFactory2;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.apache.logging.log4j.util.LambdaUtil;
+import org.apache.logging.log4j.util.Supplier;
+
+/**
+ * A {@link LogBuilder} for a {@link JBossLogger}. The builder is reusable. It's reset each time it's retrieved from the
+ * logger and released once a {@code log()} method has been invoked.
+ * <p>
+ * The message is created with the message factory of the logger and passed, along with the marker, throwable and
+ * location, directly to the logger which creates the record.
+ * </p>
+ */
+class JBossLogBuilder implements LogBuilder, BridgeAware {
+    private static final String FQCN = JBossLogBuilder.class.getName();
+    private static final Message EMPTY_MESSAGE = new SimpleMessage("");
+
+    private JBossLogger logger;
+    private Level level;
+    private boolean enabled;
+    private Marker marker;
+    private Throwable throwable;
+    private StackTraceElement location;
+    private String fqcn = FQCN;
+    private volatile boolean inUse;
+
+    /**
+     * Resets the builder for a new log event.
+     *
+     * @param logger  the logger to log to
+     * @param level   the level of the event
+     * @param enabled {@code true} if the level is enabled for the logger, otherwise only events with an accepted
+     *                marker are logged
+     *
+     * @return this builder
+     */
+    JBossLogBuilder reset(final JBossLogger logger, final Level level, final boolean enabled) {
+        this.logger = logger;
+        this.level = level;
+        this.enabled = enabled;
+        marker = null;
+        throwable = null;
+        location = null;
+        fqcn = FQCN;
+        inUse = true;
+        return this;
+    }
+
+    /**
+     * Indicates whether the builder is currently in use and cannot be reset.
+     *
+     * @return {@code true} if the builder is in use, otherwise {@code false}
+     */
+    boolean isInUse() {
+        return inUse;
+    }
+
+    @Override
+    public void setEntryPoint(final String fqcn) {
+        this.fqcn = fqcn;
+    }
+
+    @Override
+    public LogBuilder withMarker(final Marker marker) {
+        this.marker = marker;
+        return this;
+    }
+
+    @Override
+    public LogBuilder withThrowable(final Throwable throwable) {
+        this.throwable = throwable;
+        return this;
+    }
+
+    @Override
+    public LogBuilder withLocation() {
+        // The caller of this method is the first frame after the frames of this class
+        location = CallerLocator.locate(FQCN);
+        return this;
+    }
+
+    @Override
+    public LogBuilder withLocation(final StackTraceElement location) {
+        this.location = location;
+        return this;
+    }
+
+    @Override
+    public void log(final CharSequence message) {
+        if (isLoggable()) {
+            logMessage(messageFactory().newMessage(message));
+        }
+    }
+
+    @Override
+    public void log(final String message) {
+        if (isLoggable()) {
+            logMessage(messageFactory().newMessage(message));
+        }
+    }
+
+    @Override
+    public void log(final String message, final Object... params) {
+        if (isLoggable()) {
+            logMessage(messageFactory().newMessage(message, params));
+        }
+    }
+
+    @Override
+    public void log(final String message, final Supplier<?>... params) {
+        if (isLoggable()) {
+            logMessage(messageFactory().newMessage(message, LambdaUtil.getAll(params)));
+        }
+    }
+
+    @Override
+    public void log(final Message message) {
+        if (isLoggable()) {
+            logMessage(message);
+        }
+    }
+
+    @Override
+    public void log(final Supplier<Message> messageSupplier) {
+        if (isLoggable()) {
+            logMessage(messageSupplier.get());
+        }
+    }
+
+    @Override
+    public Message logAndGet(final Supplier<Message> messageSupplier) {
+        if (!isLoggable()) {
+            return null;
+        }
+        final Message message = messageSupplier.get();
+        logMessage(message);
+        return message;
+    }
+
+    @Override
+    public void log(final Object message) {
+        if (isLoggable()) {
+            logMessage(messageFactory().newMessage(message));
+        }
+    }
+
+    @Override
+    public void log(final String message, final Object p0) {
+        if (isLoggable()) {
+            logMessage(messageFactory().newMessage(message, p0));
+        }
+    }
+
+    @Override
+    public void log(final String message, final Object p0, final Object p1) {
+        if (isLoggable()) {
+            logMessage(messageFactory().newMessage(message, p0, p1));
+        }
+    }
+
+    @Override
+    public void log(final String message, final Object p0, final Object p1, final Object p2) {
+        if (isLoggable()) {
+            logMessage(messageFactory().newMessage(message, p0, p1, p2));
+        }
+    }
+
+    @Override
+    public void log(final String message, final Object p0, final Object p1, final Object p2, final Object p3) {
+        if (isLoggable()) {
+            logMessage(messageFactory().newMessage(message, p0, p1, p2, p3));
+        }
+    }
+
+    @Override
+    public void log(final String message, final Object p0, final Object p1, final Object p2, final Object p3,
+            final Object p4) {
+        if (isLoggable()) {
+            logMessage(messageFactory().newMessage(message, p0, p1, p2, p3, p4));
+        }
+    }
+
+    @Override
+    public void log(final String message, final Object p0, final Object p1, final Object p2, final Object p3,
+            final Object p4, final Object p5) {
+        if (isLoggable()) {
+            logMessage(messageFactory().newMessage(message, p0, p1, p2, p3, p4, p5));
+        }
+    }
+
+    @Override
+    public void log(final String message, final Object p0, final Object p1, final Object p2, final Object p3,
+            final Object p4, final Object p5, final Object p6) {
+        if (isLoggable()) {
+            logMessage(messageFactory().newMessage(message, p0, p1, p2, p3, p4, p5, p6));
+        }
+    }
+
+    @Override
+    public void log(final String message, final Object p0, final Object p1, final Object p2, final Object p3,
+            final Object p4, final Object p5, final Object p6, final Object p7) {
+        if (isLoggable()) {
+            logMessage(messageFactory().newMessage(message, p0, p1, p2, p3, p4, p5, p6, p7));
+        }
+    }
+
+    @Override
+    public void log(final String message, final Object p0, final Object p1, final Object p2, final Object p3,
+            final Object p4, final Object p5, final Object p6, final Object p7, final Object p8) {
+        if (isLoggable()) {
+            logMessage(messageFactory().newMessage(message, p0, p1, p2, p3, p4, p5, p6, p7, p8));
+        }
+    }
+
+    @Override
+    public void log(final String message, final Object p0, final Object p1, final Object p2, final Object p3,
+            final Object p4, final Object p5, final Object p6, final Object p7, final Object p8, final Object p9) {
+        if (isLoggable()) {
+            logMessage(messageFactory().newMessage(message, p0, p1, p2, p3, p4, p5, p6, p7, p8, p9));
+        }
+    }
+
+    @Override
+    public void log() {
+        if (isLoggable()) {
+            logMessage(EMPTY_MESSAGE);
+        }
+    }
+
+    private MessageFactory2 messageFactory() {
+        // The AbstractLogger always wraps the message factory in a MessageFactory2
+        return logger.getMessageFactory();
+    }
+
+    /**
+     * Checks whether the event is logged before the message is created. The level was checked when the builder was
+     * retrieved, a marker may change the result. The builder is released if the event is not logged.
+     *
+     * @return {@code true} if the event should be logged, otherwise {@code false}
+     */
+    private boolean isLoggable() {
+        if (marker == null ? enabled : logger.isEnabled(level, marker, enabled)) {
+            return true;
+        }
+        release();
+        return false;
+    }
+
+    private void logMessage(final Message message) {
+        try {
+            logger.logMessage(level, marker, fqcn, location, message, throwable);
+        } finally {
+            release();
+        }
+    }
+
+    private void release() {
+        // Release the references and allow the builder to be reused
+        logger = null;
+        marker = null;
+        throwable = null;
+        location = null;
+        inUse = false;
+    }
+}
@@ -20,143 +20,355 @@
 package org.jboss.logmanager.log4j;
 
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogBuilder;
 import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.message.MapMessage;
 import org.apache.logging.log4j.message.Message;
 import org.apache.logging.log4j.message.MessageFactory;
+import org.apache.logging.log4j.message.SimpleMessage;
 import org.apache.logging.log4j.spi.AbstractLogger;
+import org.apache.logging.log4j.spi.ReadOnlyThreadContextMap;
+import org.apache.logging.log4j.util.Constants;
+import org.apache.logging.log4j.util.IndexedReadOnlyStringMap;
 import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.MDC;
 
 /**
  * An implementation of a log4j2 {@linkplain org.apache.logging.log4j.Logger logger} that delegates to a JBoss Log
  * Manager logger.
  * <p>
- * Only the {@linkplain Level level} is used to determine the result {@code isEnabled()} methods. All other parameters
- * are ignored.
+ * Only the {@linkplain Level level} and the {@linkplain Marker marker} are used to determine the result
+ * {@code isEnabled()} methods. All other parameters are ignored. The marker is only checked if a {@link MarkerFilter}
+ * has been configured.
  * </p>
  *
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
 class JBossLogger extends AbstractLogger {
+    private static final int OFF = Level.OFF.intLevel();
+    // The standard levels, excluding OFF, ordered from most to least specific
+    private static final Level[] STANDARD_LEVELS = {
+            Level.FATAL,
+            Level.ERROR,
+            Level.WARN,
+            Level.INFO,
+            Level.DEBUG,
+            Level.TRACE,
+            Level.ALL,
+    };
+    // Thread locals may be disabled, e.g. in web applications, in which case the NDC is joined for each event
+    private static final ThreadLocal<CachedNdc> NDC_CACHE = Constants.ENABLE_THREADLOCALS
+            ? ThreadLocal.withInitial(CachedNdc::new)
+            : null;
+    private static final ThreadLocal<JBossLogBuilder> LOG_BUILDER = ThreadLocal.withInitial(JBossLogBuilder::new);
     private final org.jboss.logmanager.Logger logger;
     private final LevelTranslator levelTranslator = LevelTranslator.getInstance();
+    private final AsyncDispatcher dispatcher;
+    private final MarkerFilter markerFilter;
+    private final LoggerMetrics metrics;
+    private final RateLimiter rateLimiter;
+    private final DuplicateFilter duplicateFilter;
+    private final DuplicateFilter.Summary duplicateSummary;
+    private final RateLimiter.Summary suppressedSummary;
+    // Racy caching is fine as the threshold is immutable and is validated on each use
+    private Threshold threshold;
 
-    JBossLogger(final org.jboss.logmanager.Logger logger, final MessageFactory messageFactory) {
+    /**
+     * Creates a new logger.
+     *
+     * @param logger         the JBoss Log Manager logger to log to
+     * @param messageFactory the message factory or {@code null} for the default message factory
+     * @param options        the optional features of the logger
+     */
+    JBossLogger(final org.jboss.logmanager.Logger logger, final MessageFactory messageFactory, final Options options) {
         super(logger.getName(), messageFactory);
         this.logger = logger;
+        this.dispatcher = options.dispatcher;
+        this.markerFilter = options.markerFilter;
+        this.metrics = options.metrics;
+        this.rateLimiter = options.rateLimiter;
+        this.duplicateFilter = options.duplicateFilter;
+        duplicateSummary = duplicateFilter == null ? null : this::publishRepeated;
+        suppressedSummary = rateLimiter == null ? null : this::publishSuppressed;
     }
 
     @Override
     public boolean isEnabled(final Level level, final Marker marker, final Message message, final Throwable t) {
-        return logger.isLoggable(levelTranslator.translateLevel(level));
+        return isLoggable(level, marker);
     }
 
     @Override
     public boolean isEnabled(final Level level, final Marker marker, final CharSequence message, final Throwable t) {
-        return logger.isLoggable(levelTranslator.translateLevel(level));
+        return isLoggable(level, marker);
     }
 
     @Override
     public boolean isEnabled(final Level level, final Marker marker, final Object message, final Throwable t) {
-        return logger.isLoggable(levelTranslator.translateLevel(level));
+        return isLoggable(level, marker);
     }
 
     @Override
     public boolean isEnabled(final Level level, final Marker marker, final String message, final Throwable t) {
-        return logger.isLoggable(levelTranslator.translateLevel(level));
+        return isLoggable(level, marker);
     }
 
     @Override
     public boolean isEnabled(final Level level, final Marker marker, final String message) {
-        return logger.isLoggable(levelTranslator.translateLevel(level));
+        return isLoggable(level, marker);
     }
 
     @Override
     public boolean isEnabled(final Level level, final Marker marker, final String message, final Object... params) {
-        return logger.isLoggable(levelTranslator.translateLevel(level));
+        return isLoggable(level, marker);
     }
 
     @Override
     public boolean isEnabled(final Level level, final Marker marker, final String message, final Object p0) {
-        return logger.isLoggable(levelTranslator.translateLevel(level));
+        return isLoggable(level, marker);
     }
 
     @Override
     public boolean isEnabled(final Level level, final Marker marker, final String message, final Object p0, final Object p1) {
-        return logger.isLoggable(levelTranslator.translateLevel(level));
+        return isLoggable(level, marker);
     }
 
     @Override
     public boolean isEnabled(final Level level, final Marker marker, final String message, final Object p0, final Object p1,
             final Object p2) {
-        return logger.isLoggable(levelTranslator.translateLevel(level));
+        return isLoggable(level, marker);
     }
 
     @Override
     public boolean isEnabled(final Level level, final Marker marker, final String message, final Object p0, final Object p1,
             final Object p2, final Object p3) {
-        return logger.isLoggable(levelTranslator.translateLevel(level));
+        return isLoggable(level, marker);
     }
 
     @Override
     public boolean isEnabled(final Level level, final Marker marker, final String message, final Object p0, final Object p1,
             final Object p2, final Object p3, final Object p4) {
-        return logger.isLoggable(levelTranslator.translateLevel(level));
+        return isLoggable(level, marker);
     }
 
     @Override
     public boolean isEnabled(final Level level, final Marker marker, final String message, final Object p0, final Object p1,
             final Object p2, final Object p3, final Object p4, final Object p5) {
-        return logger.isLoggable(levelTranslator.translateLevel(level));
+        return isLoggable(level, marker);
     }
 
     @Override
     public boolean isEnabled(final Level level, final Marker marker, final String message, final Object p0, final Object p1,
             final Object p2, final Object p3, final Object p4, final Object p5, final Object p6) {
-        return logger.isLoggable(levelTranslator.translateLevel(level));
+        return isLoggable(level, marker);
     }
 
     @Override
     public boolean isEnabled(final Level level, final Marker marker, final String message, final Object p0, final Object p1,
             final Object p2, final Object p3, final Object p4, final Object p5, final Object p6, final Object p7) {
-        return logger.isLoggable(levelTranslator.translateLevel(level));
+        return isLoggable(level, marker);
     }
 
     @Override
     public boolean isEnabled(final Level level, final Marker marker, final String message, final Object p0, final Object p1,
             final Object p2, final Object p3, final Object p4, final Object p5, final Object p6, final Object p7,
             final Object p8) {
-        return logger.isLoggable(levelTranslator.translateLevel(level));
+        return isLoggable(level, marker);
     }
 
     @Override
     public boolean isEnabled(final Level level, final Marker marker, final String message, final Object p0, final Object p1,
             final Object p2, final Object p3, final Object p4, final Object p5, final Object p6, final Object p7,
             final Object p8, final Object p9) {
-        return logger.isLoggable(levelTranslator.translateLevel(level));
+        return isLoggable(level, marker);
     }
 
     @Override
     public void logMessage(final String fqcn, final Level level, final Marker marker, final Message message,
             final Throwable t) {
+        publish(fqcn, level, marker, null, message, t);
+    }
+
+    @Override
+    protected void log(final Level level, final Marker marker, final String fqcn, final StackTraceElement location,
+            final Message message, final Throwable throwable) {
+        publish(fqcn, level, marker, location, message, throwable);
+    }
+
+    @Override
+    public LogBuilder atLevel(final Level level) {
+        final boolean enabled = isEnabled(level);
+        // A marker set on the builder may still accept the event, the builder checks the marker when it logs
+        if (enabled || (markerFilter != null && markerFilter.hasAccepted())) {
+            return getLogBuilder(level, enabled);
+        }
+        return LogBuilder.NOOP;
+    }
+
+    @Override
+    protected LogBuilder getLogBuilder(final Level level) {
+        return getLogBuilder(level, true);
+    }
+
+    private LogBuilder getLogBuilder(final Level level, final boolean enabled) {
+        if (Constants.ENABLE_THREADLOCALS) {
+            final JBossLogBuilder builder = LOG_BUILDER.get();
+            // The builder may be in use if a message parameter logs with the fluent API
+            if (!builder.isInUse()) {
+                return builder.reset(this, level, enabled);
+            }
+        }
+        return new JBossLogBuilder().reset(this, level, enabled);
+    }
+
+    private void publish(final String fqcn, final Level level, final Marker marker, final StackTraceElement location,
+            final Message message, final Throwable t) {
+        if (filter(fqcn, level, message, t)) {
+            publish(fqcn, level, levelTranslator.translateLevel(level), marker, isAccepted(marker), location, message, t,
+                    getContextMap(), getNdc());
+        }
+    }
+
+    /**
+     * Captures the state shared by the messages of a batch. The level translation, the marker check, the NDC and the
+     * context are resolved once for the whole batch. The level check is the responsibility of the caller.
+     *
+     * @param fqcn     the fully qualified class name of the caller
+     * @param level    the level of the messages
+     * @param marker   the marker of the messages, may be {@code null}
+     * @param location the location of the caller, may be {@code null}
+     *
+     * @return the state of the batch
+     */
+    Batch captureBatch(final String fqcn, final Level level, final Marker marker, final StackTraceElement location) {
+        Map<String, ?> contextMap = getContextMap();
+        if (contextMap == null) {
+            // The record would otherwise read the MDC of the thread at the time the message is logged
+            contextMap = MDC.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(MDC.copyObject());
+        }
+        return new Batch(fqcn, level, levelTranslator.translateLevel(level), marker, isAccepted(marker), location,
+                contextMap, getNdc());
+    }
+
+    /**
+     * Logs a message of a batch with the state captured when the batch was created.
+     *
+     * @param batch   the state of the batch
+     * @param message the message to log
+     * @param t       the throwable of the message, may be {@code null}
+     */
+    void publishBatched(final Batch batch, final Message message, final Throwable t) {
+        if (filter(batch.fqcn, batch.level, message, t)) {
+            publish(batch.fqcn, batch.level, batch.julLevel, batch.marker, batch.accepted, batch.location, message, t,
+                    batch.contextMap, batch.ndc);
+        }
+    }
+
+    /**
+     * Checks whether the event should be logged. Null messages are dropped and events may be suppressed by the
+     * duplicate filter or the rate limiter, which may log a summary of previously suppressed events first.
+     *
+     * @param fqcn    the fully qualified class name of the caller
+     * @param level   the level of the event
+     * @param message the message of the event
+     * @param t       the throwable of the event, may be {@code null}
+     *
+     * @return {@code true} if the event should be logged, otherwise {@code false}
+     */
+    private boolean filter(final String fqcn, final Level level, final Message message, final Throwable t) {
         // Ignore null messages
-        if (message != null) {
-            final ExtLogRecord record = new ExtLogRecord(levelTranslator.translateLevel(level),
-                    message.getFormattedMessage(), ExtLogRecord.FormatStyle.NO_FORMAT, fqcn);
-            if (message.getParameters() != null) {
-                record.setParameters(message.getParameters());
+        if (message == null) {
+            if (metrics != null) {
+                metrics.droppedEvent();
             }
-            if (ThreadContext.isEmpty()) {
-                record.setMdc(Collections.emptyMap());
-            } else {
-                record.setMdc(ThreadContext.getContext());
+            return false;
+        }
+        if (duplicateFilter != null) {
+            duplicateFilter.flush(false, duplicateSummary);
+            final Throwable thrown = t == null ? message.getThrowable() : t;
+            final long repeated = duplicateFilter.filter(fqcn, level, message, thrown);
+            if (repeated < 0L) {
+                return false;
+            }
+            if (repeated > 0L) {
+                publishRepeated(fqcn, level, message, thrown, repeated);
+            }
+        }
+        if (rateLimiter != null) {
+            final long suppressed = rateLimiter.acquire(fqcn, level, message);
+            if (suppressed < 0L) {
+                return false;
             }
+            if (suppressed > 0L) {
+                publishSuppressed(fqcn, level, message, suppressed);
+            }
+        }
+        return true;
+    }
 
-            record.setNdc(getNdc());
-            record.setThrown(t == null ? message.getThrowable() : t);
-            logger.log(record);
+    private void publish(final String fqcn, final Level level, final java.util.logging.Level julLevel,
+            final Marker marker, final boolean accepted, final StackTraceElement location, final Message message,
+            final Throwable t, final Map<String, ?> contextMap, final String ndc) {
+        final LoggerMetrics metrics = this.metrics;
+        if (metrics == null) {
+            doPublish(fqcn, julLevel, marker, accepted, location, message, t, contextMap, ndc);
+        } else {
+            final long start = System.nanoTime();
+            try {
+                doPublish(fqcn, julLevel, marker, accepted, location, message, t, contextMap, ndc);
+            } finally {
+                metrics.event(level, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private void doPublish(final String fqcn, final Level level, final Message message) {
+        doPublish(fqcn, levelTranslator.translateLevel(level), null, false, null, message, null, getContextMap(),
+                getNdc());
+    }
+
+    private void doPublish(final String fqcn, final java.util.logging.Level julLevel, final Marker marker,
+            final boolean accepted, final StackTraceElement location, final Message message, final Throwable t,
+            final Map<String, ?> contextMap, final String ndc) {
+        if (dispatcher != null
+                && dispatcher.publish(logger, julLevel, fqcn, marker, accepted, message,
+                        t == null ? message.getThrowable() : t, contextMap, ndc, location)) {
+            return;
+        }
+        // The message is formatted only if a handler requires it
+        final MessageLogRecord record = new MessageLogRecord(julLevel, message, fqcn);
+        if (location != null) {
+            setSource(record, location);
+        }
+        // When the ThreadContext map is backed by the MDC, the record reads the MDC directly and only copies it if
+        // required, e.g. before being handed off to an asynchronous handler. Any other context map is immutable and
+        // read by the record without being copied.
+        record.setContextMap(contextMap);
+        if (message instanceof MapMessage) {
+            record.setFields(getFields((MapMessage<?, ?>) message));
+        }
+        // Reusable messages return a copy of their parameters which is safe to keep
+        final Object[] parameters = message.getParameters();
+        if (parameters != null) {
+            record.setParameters(parameters);
+        }
+
+        record.setNdc(ndc);
+        record.setThrown(t == null ? message.getThrowable() : t);
+        record.setMarker(marker);
+        try {
+            if (accepted) {
+                logger.logRaw(record);
+            } else {
+                logger.log(record);
+            }
+        } finally {
+            // A reusable message is only valid until the log method returns
+            record.detach();
         }
     }
 
@@ -169,11 +381,317 @@ class JBossLogger extends AbstractLogger {
         return levelTranslator.translateLevel(logger.getEffectiveLevel());
     }
 
-    private String getNdc() {
+    private boolean isAccepted(final Marker marker) {
+        // Events with an accepted marker bypass the level check of the JBoss Log Manager logger
+        return marker != null && markerFilter != null && markerFilter.filter(marker) == MarkerFilter.Result.ACCEPT;
+    }
+
+    /**
+     * Checks whether an event of a {@linkplain JBossLogBuilder log builder} with a marker is logged. The level was
+     * checked, and counted, when the builder was retrieved.
+     *
+     * @param level        the level of the event
+     * @param marker       the marker of the event
+     * @param levelEnabled {@code true} if the level is enabled for this logger
+     *
+     * @return {@code true} if the event should be logged, otherwise {@code false}
+     */
+    boolean isEnabled(final Level level, final Marker marker, final boolean levelEnabled) {
+        if (markerFilter != null) {
+            final MarkerFilter.Result result = markerFilter.filter(marker);
+            if (result != MarkerFilter.Result.NEUTRAL) {
+                return result == MarkerFilter.Result.ACCEPT;
+            }
+        }
+        return levelEnabled;
+    }
+
+    private boolean isLoggable(final Level level, final Marker marker) {
+        if (metrics != null) {
+            metrics.enabledCheck(level);
+        }
+        if (marker != null && markerFilter != null) {
+            final MarkerFilter.Result result = markerFilter.filter(marker);
+            if (result != MarkerFilter.Result.NEUTRAL) {
+                return result == MarkerFilter.Result.ACCEPT;
+            }
+        }
+        return isLoggable(level);
+    }
+
+    private boolean isLoggable(final Level level) {
+        if (level == null) {
+            return logger.isLoggable(levelTranslator.translateLevel((Level) null));
+        }
+        final int intLevel = level.intLevel();
+        return intLevel != OFF && intLevel <= getThreshold();
+    }
+
+    /**
+     * Returns the {@linkplain Level#intLevel() int level} of the least specific log4j level which is enabled for the
+     * logger. The value is cached and recalculated only when the effective level of the JBoss Log Manager logger
+     * changes. The effective level of a logger is updated by the log manager when the level of the logger, or the
+     * level of any of its parents, changes.
+     *
+     * @return the least specific log4j int level enabled or {@code -1} if no levels are enabled
+     */
+    private int getThreshold() {
+        final int effectiveLevel = logger.getEffectiveLevel();
+        Threshold threshold = this.threshold;
+        if (threshold == null || threshold.effectiveLevel != effectiveLevel) {
+            threshold = new Threshold(effectiveLevel, resolveThreshold());
+            this.threshold = threshold;
+        }
+        return threshold.intLevel;
+    }
+
+    private int resolveThreshold() {
+        // Custom log4j levels translate to the closest standard level, so checking the standard levels is enough
+        int result = -1;
+        for (Level level : STANDARD_LEVELS) {
+            if (logger.isLoggable(levelTranslator.translateLevel(level))) {
+                result = level.intLevel();
+            } else {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sets the source of the record from the location. This also disables the caller calculation of the record.
+     *
+     * @param record   the record to set the source on
+     * @param location the location
+     */
+    static void setSource(final ExtLogRecord record, final StackTraceElement location) {
+        record.setSourceClassName(location.getClassName());
+        record.setSourceMethodName(location.getMethodName());
+        record.setSourceFileName(location.getFileName());
+        record.setSourceLineNumber(location.getLineNumber());
+        record.setSourceModuleName(location.getModuleName());
+        record.setSourceModuleVersion(location.getModuleVersion());
+    }
+
+    /**
+     * Logs the summaries of the duplicate events which have not been reported yet.
+     */
+    void flushDuplicates() {
+        if (duplicateFilter != null) {
+            duplicateFilter.flush(true, duplicateSummary);
+        }
+    }
+
+    /**
+     * Logs the summaries of the rate limited events which have not been reported yet.
+     */
+    void flushSuppressed() {
+        if (rateLimiter != null) {
+            rateLimiter.flush(suppressedSummary);
+        }
+    }
+
+    // The format identifies the duplicate event, there is no replacement which does not format the message
+    @SuppressWarnings("deprecation")
+    private void publishRepeated(final String fqcn, final Level level, final Message message, final Throwable thrown,
+            final long repeated) {
+        publishRepeated(fqcn, level, message.getFormat(), thrown == null ? null : thrown.getClass(), repeated);
+    }
+
+    private void publishRepeated(final String fqcn, final Level level, final String format,
+            final Class<?> throwableType, final long repeated) {
+        final String msg;
+        if (throwableType == null) {
+            msg = String.format("The message \"%s\" was repeated %d times", format, repeated);
+        } else {
+            msg = String.format("The message \"%s\" with %s was repeated %d times", format, throwableType.getName(),
+                    repeated);
+        }
+        doPublish(fqcn, level, new SimpleMessage(msg));
+    }
+
+    // The format is the key of the template the rate limiter limited, there is no replacement which does not format the
+    // message
+    @SuppressWarnings("deprecation")
+    private void publishSuppressed(final String fqcn, final Level level, final Message message, final long suppressed) {
+        publishSuppressed(fqcn, level, rateLimiter.isPerTemplate() ? message.getFormat() : null, suppressed);
+    }
+
+    private void publishSuppressed(final String fqcn, final Level level, final String template, final long suppressed) {
+        final String messages = suppressed == 1L ? "message" : "messages";
+        final String msg;
+        if (template == null) {
+            msg = String.format("Suppressed %d log %s", suppressed, messages);
+        } else {
+            msg = String.format("Suppressed %d log %s matching \"%s\"", suppressed, messages, template);
+        }
+        doPublish(fqcn, level, new SimpleMessage(msg));
+    }
+
+    /**
+     * Returns a snapshot of the fields of the map message. The values keep their type.
+     *
+     * @param message the map message
+     *
+     * @return an unmodifiable map of the fields
+     */
+    static Map<String, Object> getFields(final MapMessage<?, ?> message) {
+        final IndexedReadOnlyStringMap data = message.getIndexedReadOnlyStringMap();
+        final int size = data.size();
+        if (size == 0) {
+            return Collections.emptyMap();
+        }
+        final Map<String, Object> fields = new LinkedHashMap<>(size * 4 / 3 + 1);
+        for (int i = 0; i < size; i++) {
+            fields.put(data.getKeyAt(i), data.getValueAt(i));
+        }
+        return Collections.unmodifiableMap(fields);
+    }
+
+    /**
+     * Returns the {@link ThreadContext} map of the current thread if the installed {@code ThreadContext} map is not
+     * backed by the {@link org.jboss.logmanager.MDC MDC}.
+     *
+     * @return an immutable map of the context or {@code null} if the context is the {@link org.jboss.logmanager.MDC MDC}
+     */
+    static Map<String, ?> getContextMap() {
+        final ReadOnlyThreadContextMap contextMap = ThreadContext.getThreadContextMap();
+        if (contextMap instanceof ThreadContextMDCMap) {
+            return null;
+        }
+        if (contextMap instanceof ImmutableThreadContextMap) {
+            return ImmutableThreadContextMap.getContextMap();
+        }
+        return ThreadContext.getImmutableContext();
+    }
+
+    private static String getNdc() {
         final ThreadContext.ContextStack contextStack = ThreadContext.getImmutableStack();
         if (contextStack.isEmpty()) {
             return "";
         }
-        return String.join(".", contextStack);
+        if (NDC_CACHE == null) {
+            return String.join(".", contextStack);
+        }
+        // The immutable stack is replaced each time the stack changes, so the joined value can be reused until then
+        final CachedNdc cached = NDC_CACHE.get();
+        if (cached.stack != contextStack) {
+            cached.value = String.join(".", contextStack);
+            cached.stack = contextStack;
+        }
+        return cached.value;
+    }
+
+    /**
+     * The optional features of a logger. A feature which has not been set is disabled.
+     */
+    static class Options {
+        private AsyncDispatcher dispatcher;
+        private MarkerFilter markerFilter;
+        private LoggerMetrics metrics;
+        private RateLimiter rateLimiter;
+        private DuplicateFilter duplicateFilter;
+
+        /**
+         * Sets the dispatcher used for asynchronous logging.
+         *
+         * @param dispatcher the dispatcher or {@code null} to log synchronously
+         *
+         * @return these options
+         */
+        Options dispatcher(final AsyncDispatcher dispatcher) {
+            this.dispatcher = dispatcher;
+            return this;
+        }
+
+        /**
+         * Sets the filter for the markers of events.
+         *
+         * @param markerFilter the marker filter or {@code null} if markers are not filtered
+         *
+         * @return these options
+         */
+        Options markerFilter(final MarkerFilter markerFilter) {
+            this.markerFilter = markerFilter;
+            return this;
+        }
+
+        /**
+         * Sets the metrics of the logger.
+         *
+         * @param metrics the metrics or {@code null} if metrics are not collected
+         *
+         * @return these options
+         */
+        Options metrics(final LoggerMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Sets the rate limiter of the logger.
+         *
+         * @param rateLimiter the rate limiter or {@code null} if events are not rate limited
+         *
+         * @return these options
+         */
+        Options rateLimiter(final RateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+            return this;
+        }
+
+        /**
+         * Sets the filter for duplicate events.
+         *
+         * @param duplicateFilter the duplicate filter or {@code null} if duplicate events are not filtered
+         *
+         * @return these options
+         */
+        Options duplicateFilter(final DuplicateFilter duplicateFilter) {
+            this.duplicateFilter = duplicateFilter;
+            return this;
+        }
+    }
+
+    private static class Threshold {
+        final int effectiveLevel;
+        final int intLevel;
+
+        private Threshold(final int effectiveLevel, final int intLevel) {
+            this.effectiveLevel = effectiveLevel;
+            this.intLevel = intLevel;
+        }
+    }
+
+    /**
+     * The state shared by the messages of a batch.
+     */
+    static final class Batch {
+        private final String fqcn;
+        private final Level level;
+        private final java.util.logging.Level julLevel;
+        private final Marker marker;
+        private final boolean accepted;
+        private final StackTraceElement location;
+        private final Map<String, ?> contextMap;
+        private final String ndc;
+
+        private Batch(final String fqcn, final Level level, final java.util.logging.Level julLevel, final Marker marker,
+                final boolean accepted, final StackTraceElement location, final Map<String, ?> contextMap,
+                final String ndc) {
+            this.fqcn = fqcn;
+            this.level = level;
+            this.julLevel = julLevel;
+            this.marker = marker;
+            this.accepted = accepted;
+            this.location = location;
+            this.contextMap = contextMap;
+            this.ndc = ndc;
+        }
+    }
+
+    private static class CachedNdc {
+        ThreadContext.ContextStack stack;
+        String value;
     }
 }
@@ -19,16 +19,23 @@
 
 package org.jboss.logmanager.log4j;
 
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
 import org.apache.logging.log4j.message.MessageFactory;
+import org.apache.logging.log4j.message.ReusableMessageFactory;
 import org.apache.logging.log4j.spi.AbstractLogger;
 import org.apache.logging.log4j.spi.ExtendedLogger;
 import org.apache.logging.log4j.spi.LoggerContext;
 import org.apache.logging.log4j.spi.LoggerRegistry;
+import org.apache.logging.log4j.util.Constants;
+import org.apache.logging.log4j.util.PropertiesUtil;
 import org.jboss.logmanager.LogContext;
+import org.jboss.logmanager.Logger;
 
 /**
  * Represents a {@link LoggerContext} backed by a {@link LogContext}.
@@ -36,20 +43,41 @@ import org.jboss.logmanager.LogContext;
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
 class JBossLoggerContext implements LoggerContext {
+    private static final Logger.AttachmentKey<CloseHandler> CLOSE_HANDLER_KEY = new Logger.AttachmentKey<>();
+    // The message factory used when no message factory is requested. Reusable messages are opt-in, as handlers which
+    // keep records must copy them, and only used if thread locals are enabled, i.e. log4j2.enableThreadlocals.
+    private static final MessageFactory DEFAULT_MESSAGE_FACTORY = Constants.ENABLE_THREADLOCALS
+            && PropertiesUtil.getProperties().getBooleanProperty("org.jboss.logmanager.log4j.reusableMessages")
+                    ? ReusableMessageFactory.INSTANCE
+                    : null;
     private final LogContext logContext;
     private final Object externalContext;
     private final LoggerRegistry<JBossLogger> loggerRegistry = new LoggerRegistry<>();
+    // Loggers using the default message factory, which is the common case, resolved with a single lookup
+    private final ConcurrentMap<String, JBossLogger> defaultLoggers = new ConcurrentHashMap<>();
     private final ConcurrentMap<String, Object> map = new ConcurrentHashMap<>();
+    private final AsyncDispatcher dispatcher;
+    private final ContextMetrics metrics;
+    private final AutoCloseable closeHandler = this::shutdown;
 
     /**
      * Creates a new logger context.
      *
      * @param logContext      the JBoss Log Manager context to use
      * @param externalContext the external context provided
+     * @param dispatcher      the dispatcher used for asynchronous logging or {@code null} to log synchronously
+     * @param metrics         the metrics for the loggers or {@code null} if metrics are not collected
      */
-    JBossLoggerContext(final LogContext logContext, final Object externalContext) {
+    JBossLoggerContext(final LogContext logContext, final Object externalContext, final AsyncDispatcher dispatcher,
+            final ContextMetrics metrics) {
         this.logContext = logContext;
         this.externalContext = externalContext;
+        this.dispatcher = dispatcher;
+        this.metrics = metrics;
+        if (dispatcher != null || metrics != null) {
+            // Drain the events and unregister the metrics if the log context is closed before this context is removed
+            getCloseHandler(logContext).add(closeHandler);
+        }
     }
 
     @Override
@@ -64,24 +92,40 @@ class JBossLoggerContext implements LoggerContext {
 
     @Override
     public ExtendedLogger getLogger(final String name, final MessageFactory messageFactory) {
+        if (messageFactory == null) {
+            final JBossLogger logger = defaultLoggers.get(name);
+            if (logger != null) {
+                return logger;
+            }
+            return defaultLoggers.computeIfAbsent(name, n -> getOrCreateLogger(n, DEFAULT_MESSAGE_FACTORY));
+        }
+        return getOrCreateLogger(name, messageFactory);
+    }
+
+    private JBossLogger getOrCreateLogger(final String name, final MessageFactory messageFactory) {
         JBossLogger logger = loggerRegistry.getLogger(name, messageFactory);
         if (logger != null) {
             AbstractLogger.checkMessageFactory(logger, messageFactory);
             return logger;
         }
-        logger = new JBossLogger(logContext.getLogger(name), messageFactory);
+        logger = new JBossLogger(logContext.getLogger(name), messageFactory, new JBossLogger.Options()
+                .dispatcher(dispatcher)
+                .markerFilter(MarkerFilter.getInstance())
+                .metrics(metrics == null ? null : metrics.getLoggerMetrics(name))
+                .rateLimiter(RateLimiter.createIfEnabled())
+                .duplicateFilter(DuplicateFilter.createIfEnabled()));
         loggerRegistry.putIfAbsent(name, messageFactory, logger);
         return loggerRegistry.getLogger(name, messageFactory);
     }
 
     @Override
     public boolean hasLogger(final String name) {
-        return loggerRegistry.hasLogger(name);
+        return loggerRegistry.hasLogger(name, DEFAULT_MESSAGE_FACTORY);
     }
 
     @Override
     public boolean hasLogger(final String name, final MessageFactory messageFactory) {
-        return loggerRegistry.hasLogger(name, messageFactory);
+        return loggerRegistry.hasLogger(name, messageFactory == null ? DEFAULT_MESSAGE_FACTORY : messageFactory);
     }
 
     @Override
@@ -140,4 +184,82 @@ class JBossLoggerContext implements LoggerContext {
     LogContext getLogContext() {
         return logContext;
     }
+
+    /**
+     * Logs any pending asynchronous events and stops asynchronous logging for this context. Events logged after this
+     * has been invoked are logged synchronously. Duplicate and rate limited events which have not been reported yet are
+     * reported and the metrics, if enabled, are unregistered.
+     */
+    void close() {
+        // Do not keep this context reachable from the log context once it has been removed
+        final CloseHandler handler = logContext.getAttachment(CLOSE_HANDLER_KEY);
+        if (handler != null) {
+            handler.remove(closeHandler);
+        }
+        shutdown();
+    }
+
+    /**
+     * Returns the metrics of the loggers of this context.
+     *
+     * @return the metrics or {@code null} if metrics are not collected
+     */
+    ContextMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void shutdown() {
+        for (JBossLogger logger : loggerRegistry.getLoggers()) {
+            logger.flushDuplicates();
+            logger.flushSuppressed();
+        }
+        if (dispatcher != null) {
+            dispatcher.close();
+        }
+        if (metrics != null) {
+            metrics.unregister();
+        }
+    }
+
+    private static CloseHandler getCloseHandler(final LogContext logContext) {
+        CloseHandler handler = logContext.getAttachment(CLOSE_HANDLER_KEY);
+        if (handler == null) {
+            final CloseHandler newHandler = new CloseHandler();
+            if (System.getSecurityManager() == null) {
+                handler = logContext.attachIfAbsent(CLOSE_HANDLER_KEY, newHandler);
+            } else {
+                handler = AccessController.doPrivileged(
+                        (PrivilegedAction<CloseHandler>) () -> logContext.attachIfAbsent(CLOSE_HANDLER_KEY, newHandler));
+            }
+            if (handler == null) {
+                handler = newHandler;
+            }
+        }
+        return handler;
+    }
+
+    /**
+     * Closes the logger contexts of a log context when the log context is closed. A single handler is attached to the
+     * log context, so logger contexts can be removed again, which the close handlers of the log context do not allow.
+     */
+    private static class CloseHandler implements AutoCloseable {
+        // Identity based, as the logger contexts may be equal to each other
+        private final Set<AutoCloseable> contexts = ConcurrentHashMap.newKeySet();
+
+        void add(final AutoCloseable context) {
+            contexts.add(context);
+        }
+
+        void remove(final AutoCloseable context) {
+            contexts.remove(context);
+        }
+
+        @Override
+        public void close() throws Exception {
+            for (AutoCloseable context : contexts) {
+                context.close();
+            }
+            contexts.clear();
+        }
+    }
 }
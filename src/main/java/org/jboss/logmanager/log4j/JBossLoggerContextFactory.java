@@ -22,15 +22,17 @@ package org.jboss.logmanager.log4j;
 import java.net.URI;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.logging.log4j.spi.LoggerContext;
 import org.apache.logging.log4j.spi.LoggerContextFactory;
 import org.apache.logging.log4j.status.StatusLogger;
+import org.apache.logging.log4j.util.PropertiesUtil;
 import org.jboss.logmanager.LogContext;
+import org.jboss.logmanager.LogContextSelector;
 import org.jboss.logmanager.Logger;
 
 /**
@@ -41,7 +43,13 @@ import org.jboss.logmanager.Logger;
 public class JBossLoggerContextFactory implements LoggerContextFactory {
     private static final Logger.AttachmentKey<Map<Object, LoggerContext>> CONTEXT_KEY = new Logger.AttachmentKey<>();
     private static final String ROOT_LOGGER_NAME = "";
+    // Used as the key for a null external context as a ConcurrentHashMap does not allow null keys
+    private static final Object NULL_KEY = new Object();
+    // Opt-in as a selector may resolve a different log context for the same class loader over time
+    private static final boolean CACHE_LOG_CONTEXTS = PropertiesUtil.getProperties()
+            .getBooleanProperty("org.jboss.logmanager.log4j.cacheLogContexts");
     private final ReentrantLock lock = new ReentrantLock();
+    private final LogContextCache logContextCache = CACHE_LOG_CONTEXTS ? new LogContextCache() : null;
 
     @Override
     public LoggerContext getContext(final String fqcn, final ClassLoader loader, final Object externalContext,
@@ -68,7 +76,10 @@ public class JBossLoggerContextFactory implements LoggerContextFactory {
     public void removeContext(final LoggerContext context) {
         // Check the context type and if it's not a JBossLoggerContext there is nothing for us to do.
         if (context instanceof JBossLoggerContext) {
-            final LogContext logContext = ((JBossLoggerContext) context).getLogContext();
+            final JBossLoggerContext loggerContext = (JBossLoggerContext) context;
+            final LogContext logContext = loggerContext.getLogContext();
+            // Drain any pending asynchronous events before the context is removed
+            loggerContext.close();
             lock.lock();
             try {
                 final Map<Object, LoggerContext> contexts = logContext.getAttachment(ROOT_LOGGER_NAME, CONTEXT_KEY);
@@ -98,10 +109,23 @@ public class JBossLoggerContextFactory implements LoggerContextFactory {
         if (currentContext || classLoader == null) {
             return getOrCreateLoggerContext(LogContext.getLogContext(), externalContext);
         }
+        if (logContextCache == null) {
+            return getOrCreateLoggerContext(resolveLogContext(classLoader), externalContext);
+        }
+        LogContext logContext = logContextCache.get(classLoader);
+        if (logContext == null) {
+            final LogContextSelector selector = LogContext.getLogContextSelector();
+            logContext = resolveLogContext(classLoader);
+            logContextCache.put(classLoader, selector, logContext);
+        }
+        return getOrCreateLoggerContext(logContext, externalContext);
+    }
+
+    private static LogContext resolveLogContext(final ClassLoader classLoader) {
         final ClassLoader current = getTccl();
         try {
             setTccl(classLoader);
-            return getOrCreateLoggerContext(LogContext.getLogContext(), externalContext);
+            return LogContext.getLogContext();
         } finally {
             setTccl(current);
         }
@@ -109,15 +133,27 @@ public class JBossLoggerContextFactory implements LoggerContextFactory {
 
     private LoggerContext getOrCreateLoggerContext(final LogContext logContext, final Object externalContext) {
         final Logger rootLogger = logContext.getLogger(ROOT_LOGGER_NAME);
+        final Object key = externalContext == null ? NULL_KEY : externalContext;
+        // Check for an existing context first which does not require a lock
+        Map<Object, LoggerContext> contexts = rootLogger.getAttachment(CONTEXT_KEY);
+        if (contexts != null) {
+            final LoggerContext result = contexts.get(key);
+            if (result != null) {
+                return result;
+            }
+        }
         lock.lock();
         try {
-            Map<Object, LoggerContext> contexts = rootLogger.getAttachment(CONTEXT_KEY);
+            contexts = rootLogger.getAttachment(CONTEXT_KEY);
             if (contexts == null) {
-                contexts = new HashMap<>();
+                contexts = new ConcurrentHashMap<>();
                 attach(rootLogger, contexts);
+                // Registered under the lock, once per log context, so removeContext() always sees the listener and
+                // status events logged while the logger context is created are delivered
+                JBossStatusListener.registerIfAbsent(logContext);
             }
-            JBossStatusListener.registerIfAbsent(logContext);
-            return contexts.computeIfAbsent(externalContext, o -> new JBossLoggerContext(logContext, externalContext));
+            return contexts.computeIfAbsent(key, o -> new JBossLoggerContext(logContext, externalContext,
+                    AsyncDispatcher.createIfEnabled(), ContextMetrics.createIfEnabled()));
         } finally {
             lock.unlock();
         }
@@ -21,6 +21,9 @@ package org.jboss.logmanager.log4j;
 
 import org.apache.logging.log4j.spi.Provider;
 import org.apache.logging.log4j.spi.ThreadContextMap;
+import org.apache.logging.log4j.status.StatusLogger;
+import org.apache.logging.log4j.util.LoaderUtil;
+import org.apache.logging.log4j.util.PropertiesUtil;
 
 /**
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
@@ -33,11 +36,20 @@ public class JBossProvider extends Provider {
 
     @Override
     public String getThreadContextMap() {
-        return ThreadContextMDCMap.class.getName();
+        return loadThreadContextMap().getName();
     }
 
     @Override
     public Class<? extends ThreadContextMap> loadThreadContextMap() {
-        return ThreadContextMDCMap.class;
+        // The log4j property is only handled by the provider of log4j-core, honor it for consistency
+        final String className = PropertiesUtil.getProperties().getStringProperty("log4j2.threadContextMap");
+        if (className != null) {
+            try {
+                return LoaderUtil.loadClass(className).asSubclass(ThreadContextMap.class);
+            } catch (ClassNotFoundException | ClassCastException e) {
+                StatusLogger.getLogger().error("Unable to load the thread context map {}", className, e);
+            }
+        }
+        return ImmutableThreadContextMap.isSelected() ? ImmutableThreadContextMap.class : ThreadContextMDCMap.class;
     }
 }
@@ -21,6 +21,11 @@ package org.jboss.logmanager.log4j;
 
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.status.StatusData;
@@ -28,17 +33,29 @@ import org.apache.logging.log4j.status.StatusListener;
 import org.apache.logging.log4j.status.StatusLogger;
 import org.jboss.logmanager.LogContext;
 import org.jboss.logmanager.Logger;
+import org.jboss.logmanager.MDC;
+import org.jboss.logmanager.NDC;
 
 /**
  * A status logger which logs to a JBoss Log Manager Logger.
+ * <p>
+ * Status events are queued and delivered in batches by a single thread at a time. Threads which log a status event
+ * while another thread delivers events return once the event has been queued. The status message is only formatted if
+ * a handler requires it. The thread, the MDC and the NDC of the logging thread are captured when the event is queued.
+ * </p>
  *
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
 class JBossStatusListener implements StatusListener {
     private static final String NAME = "org.jboss.logmanager.log4j.status";
     private static final Logger.AttachmentKey<StatusListener> STATUS_LISTENER_KEY = new Logger.AttachmentKey<>();
+    private static final String FQCN = JBossStatusListener.class.getName();
     private final Logger logger;
     private final LevelTranslator levelTranslator;
+    private final Queue<PendingStatus> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean delivering = new AtomicBoolean();
+    // Racy caching is fine as the threshold is immutable and is validated on each use
+    private Threshold threshold;
 
     private JBossStatusListener(final Logger logger, final LevelTranslator levelTranslator) {
         this.logger = logger;
@@ -46,7 +63,8 @@ class JBossStatusListener implements StatusListener {
     }
 
     /**
-     * Registers a status listener with the log context if one does not already exist.
+     * Registers a status listener with the log context if one does not already exist. This should be invoked while
+     * holding the lock of the context factory when the first logger context of the log context is created.
      *
      * @param logContext the log context to possibly register the status listener with
      */
@@ -83,23 +101,63 @@ class JBossStatusListener implements StatusListener {
     public void log(final StatusData data) {
         // Verify we can log at this level
         if (getStatusLevel().isLessSpecificThan(data.getLevel())) {
-            logger.log(
-                    levelTranslator.translateLevel(data.getLevel()),
-                    data.getMessage().getFormattedMessage(),
-                    data.getThrowable());
+            pending.add(new PendingStatus(data));
+            deliver();
         }
     }
 
     @Override
     public Level getStatusLevel() {
-        return levelTranslator.translateLevel(logger.getLevel());
+        final java.util.logging.Level level = logger.getLevel();
+        Threshold threshold = this.threshold;
+        if (threshold == null || threshold.julLevel != level) {
+            threshold = new Threshold(level, levelTranslator.translateLevel(level));
+            this.threshold = threshold;
+        }
+        return threshold.level;
     }
 
     @Override
     public void close() {
+        deliver();
         detach(logger);
     }
 
+    private void deliver() {
+        // The queue is checked again after releasing the flag as an event may have been queued in the meantime
+        while (!pending.isEmpty() && delivering.compareAndSet(false, true)) {
+            try {
+                PendingStatus status;
+                while ((status = pending.poll()) != null) {
+                    logger.log(createRecord(status));
+                }
+            } finally {
+                delivering.set(false);
+            }
+        }
+    }
+
+    private MessageLogRecord createRecord(final PendingStatus status) {
+        final StatusData data = status.data;
+        final MessageLogRecord record = new MessageLogRecord(levelTranslator.translateLevel(data.getLevel()),
+                data.getMessage(), FQCN);
+        // The record is created by the delivering thread, which may not be the thread which logged the event. The state
+        // captured from the delivering thread by the record is replaced with the state of the logging thread.
+        record.setInstant(data.getInstant());
+        record.setThreadName(data.getThreadName());
+        record.setLongThreadID(status.threadId);
+        record.setNdc(status.ndc);
+        record.setContextMap(status.mdc);
+        record.setThrown(data.getThrowable());
+        final StackTraceElement location = data.getStackTraceElement();
+        if (location == null) {
+            record.disableCallerCalculation();
+        } else {
+            JBossLogger.setSource(record, location);
+        }
+        return record;
+    }
+
     private static StatusListener attachIfAbsent(final Logger logger, final StatusListener value) {
         if (System.getSecurityManager() == null) {
             return logger.attachIfAbsent(STATUS_LISTENER_KEY, value);
@@ -132,4 +190,30 @@ class JBossStatusListener implements StatusListener {
         }
     }
 
-}
\ No newline at end of file
+    /**
+     * A queued status event along with the state of the thread which logged it.
+     */
+    private static class PendingStatus {
+        final StatusData data;
+        final long threadId;
+        final String ndc;
+        final Map<String, ?> mdc;
+
+        private PendingStatus(final StatusData data) {
+            this.data = data;
+            this.threadId = Thread.currentThread().getId();
+            this.ndc = NDC.get();
+            this.mdc = MDC.isEmpty() ? Collections.emptyMap() : Collections.unmodifiableMap(MDC.copyObject());
+        }
+    }
+
+    private static class Threshold {
+        final java.util.logging.Level julLevel;
+        final Level level;
+
+        private Threshold(final java.util.logging.Level julLevel, final Level level) {
+            this.julLevel = julLevel;
+            this.level = level;
+        }
+    }
+}
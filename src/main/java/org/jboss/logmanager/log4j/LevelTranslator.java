@@ -19,9 +19,6 @@
 
 package org.jboss.logmanager.log4j;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.apache.logging.log4j.Level;
 
 /**
@@ -32,8 +29,15 @@ import org.apache.logging.log4j.Level;
 class LevelTranslator {
     private static final Level DEFAULT_LOG4J_LEVEL = Level.DEBUG;
     private static final org.jboss.logmanager.Level DEFAULT_LEVEL = org.jboss.logmanager.Level.DEBUG;
-    private final Map<Integer, Level> julToLog4j = new HashMap<>();
-    private final Map<Integer, java.util.logging.Level> log4jToJul = new HashMap<>();
+    // The standard levels on both sides are multiples of 100, other than ALL and OFF for JUL and ALL for log4j
+    private static final int STEP = 100;
+    private static final int JUL_ALL = java.util.logging.Level.ALL.intValue();
+    private static final int JUL_OFF = java.util.logging.Level.OFF.intValue();
+    private static final int LOG4J_MAX_STANDARD = Level.TRACE.intLevel();
+    // Indexed by the JUL intValue() / 100
+    private final Level[] julToLog4j = new Level[(org.jboss.logmanager.Level.FATAL.intValue() / STEP) + 1];
+    // Indexed by the log4j intLevel() / 100
+    private final java.util.logging.Level[] log4jToJul = new java.util.logging.Level[(LOG4J_MAX_STANDARD / STEP) + 1];
 
     private static class Holder {
         static final LevelTranslator INSTANCE = new LevelTranslator();
@@ -41,28 +45,25 @@ class LevelTranslator {
 
     private LevelTranslator() {
         // Add JUL levels
-        julToLog4j.put(java.util.logging.Level.FINEST.intValue(), Level.TRACE);
+        put(java.util.logging.Level.FINEST, Level.TRACE);
         // This has a intValue() of 700 which is really between INFO and DEBUG, we'll default to DEBUG
-        julToLog4j.put(java.util.logging.Level.CONFIG.intValue(), Level.DEBUG);
+        put(java.util.logging.Level.CONFIG, Level.DEBUG);
 
         // Note these should be added last to override any values that match
-        julToLog4j.put(org.jboss.logmanager.Level.ALL.intValue(), Level.ALL);
-        julToLog4j.put(org.jboss.logmanager.Level.TRACE.intValue(), Level.TRACE);
-        julToLog4j.put(org.jboss.logmanager.Level.DEBUG.intValue(), Level.DEBUG);
-        julToLog4j.put(org.jboss.logmanager.Level.INFO.intValue(), Level.INFO);
-        julToLog4j.put(org.jboss.logmanager.Level.WARN.intValue(), Level.WARN);
-        julToLog4j.put(org.jboss.logmanager.Level.ERROR.intValue(), Level.ERROR);
-        julToLog4j.put(org.jboss.logmanager.Level.FATAL.intValue(), Level.FATAL);
-        julToLog4j.put(org.jboss.logmanager.Level.OFF.intValue(), Level.OFF);
+        put(org.jboss.logmanager.Level.TRACE, Level.TRACE);
+        put(org.jboss.logmanager.Level.DEBUG, Level.DEBUG);
+        put(org.jboss.logmanager.Level.INFO, Level.INFO);
+        put(org.jboss.logmanager.Level.WARN, Level.WARN);
+        put(org.jboss.logmanager.Level.ERROR, Level.ERROR);
+        put(org.jboss.logmanager.Level.FATAL, Level.FATAL);
 
-        log4jToJul.put(Level.ALL.intLevel(), org.jboss.logmanager.Level.ALL);
-        log4jToJul.put(Level.TRACE.intLevel(), org.jboss.logmanager.Level.TRACE);
-        log4jToJul.put(Level.DEBUG.intLevel(), org.jboss.logmanager.Level.DEBUG);
-        log4jToJul.put(Level.INFO.intLevel(), org.jboss.logmanager.Level.INFO);
-        log4jToJul.put(Level.WARN.intLevel(), org.jboss.logmanager.Level.WARN);
-        log4jToJul.put(Level.ERROR.intLevel(), org.jboss.logmanager.Level.ERROR);
-        log4jToJul.put(Level.FATAL.intLevel(), org.jboss.logmanager.Level.FATAL);
-        log4jToJul.put(Level.OFF.intLevel(), org.jboss.logmanager.Level.OFF);
+        put(Level.OFF, org.jboss.logmanager.Level.OFF);
+        put(Level.FATAL, org.jboss.logmanager.Level.FATAL);
+        put(Level.ERROR, org.jboss.logmanager.Level.ERROR);
+        put(Level.WARN, org.jboss.logmanager.Level.WARN);
+        put(Level.INFO, org.jboss.logmanager.Level.INFO);
+        put(Level.DEBUG, org.jboss.logmanager.Level.DEBUG);
+        put(Level.TRACE, org.jboss.logmanager.Level.TRACE);
     }
 
     /**
@@ -76,14 +77,31 @@ class LevelTranslator {
 
     /**
      * Translates a {@linkplain Level log4j level} to a {@linkplain java.util.logging.Level JUL level}.
+     * <p>
+     * Custom levels, e.g. levels created with {@link Level#forName(String, int)}, are translated to the closest standard
+     * level which is equal to or less specific than the custom level. For example a custom level with an
+     * {@linkplain Level#intLevel() int level} of 350 is translated to {@link org.jboss.logmanager.Level#INFO INFO}.
+     * This allows a custom level to be enabled in the same cases it would be enabled for log4j.
+     * </p>
      *
      * @param level the log4j level
      *
      * @return the closest match of a JUL level
      */
     java.util.logging.Level translateLevel(final Level level) {
-        final java.util.logging.Level result = level == null ? null : log4jToJul.get(level.intLevel());
-        return result == null ? DEFAULT_LEVEL : result;
+        if (level == null) {
+            return DEFAULT_LEVEL;
+        }
+        final int intLevel = level.intLevel();
+        if (intLevel > LOG4J_MAX_STANDARD) {
+            // Includes Level.ALL
+            return org.jboss.logmanager.Level.ALL;
+        }
+        if (intLevel < 0) {
+            return DEFAULT_LEVEL;
+        }
+        // Round up to the next standard level, for the standard levels this is the level itself
+        return log4jToJul[(intLevel + STEP - 1) / STEP];
     }
 
     /**
@@ -105,7 +123,27 @@ class LevelTranslator {
      * @return the log4j level
      */
     Level translateLevel(final int level) {
-        final Level result = julToLog4j.get(level);
-        return result == null ? DEFAULT_LOG4J_LEVEL : result;
+        if (level == JUL_ALL) {
+            return Level.ALL;
+        }
+        if (level == JUL_OFF) {
+            return Level.OFF;
+        }
+        final int index = level / STEP;
+        if (level >= 0 && index < julToLog4j.length && index * STEP == level) {
+            final Level result = julToLog4j[index];
+            if (result != null) {
+                return result;
+            }
+        }
+        return DEFAULT_LOG4J_LEVEL;
+    }
+
+    private void put(final java.util.logging.Level julLevel, final Level level) {
+        julToLog4j[julLevel.intValue() / STEP] = level;
+    }
+
+    private void put(final Level level, final java.util.logging.Level julLevel) {
+        log4jToJul[level.intLevel() / STEP] = julLevel;
     }
 }
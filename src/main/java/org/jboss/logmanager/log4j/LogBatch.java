@@ -0,0 +1,184 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.MessageFactory;
+
+/**
+ * A batch of messages logged at the same level by the same logger, e.g. by a job which logs many related events in a
+ * loop. The level check, the {@link org.apache.logging.log4j.ThreadContext ThreadContext} and the caller are captured
+ * once when the batch is created.
+ *
+ * <pre>{@code
+ * try (LogBatch batch = LogBatch.create(logger, Level.INFO)) {
+ *     for (Row row : rows) {
+ *         batch.add("Imported row {}", row.getId());
+ *     }
+ * }
+ * }</pre>
+ * <p>
+ * Each message is logged when it is added, so the records have the time the message was added and are ordered with
+ * the other events of the logger. All records of a batch contain the context captured when the batch was created. A
+ * batch is not thread-safe.
+ * </p>
+ */
+public final class LogBatch implements AutoCloseable {
+    private static final String FQCN = LogBatch.class.getName();
+
+    private final Logger logger;
+    private final Level level;
+    private final Marker marker;
+    private final MessageFactory messageFactory;
+    private JBossLogger.Batch batch;
+    private ThreadContextSnapshot context;
+    private boolean enabled;
+
+    private LogBatch(final Logger logger, final Level level, final Marker marker) {
+        this.logger = logger;
+        this.level = level;
+        this.marker = marker;
+        messageFactory = logger.getMessageFactory();
+        enabled = logger.isEnabled(level, marker);
+        if (enabled) {
+            if (logger instanceof JBossLogger) {
+                final StackTraceElement location = CallerLocator.isEnabled() ? CallerLocator.locate(FQCN) : null;
+                batch = ((JBossLogger) logger).captureBatch(FQCN, level, marker, location);
+            } else {
+                // Other loggers log each message with the captured context restored
+                context = ThreadContextSnapshot.capture();
+            }
+        }
+    }
+
+    /**
+     * Creates a batch for the logger.
+     *
+     * @param logger the logger to log the messages to
+     * @param level  the level of the messages
+     *
+     * @return the batch
+     */
+    public static LogBatch create(final Logger logger, final Level level) {
+        return new LogBatch(logger, level, null);
+    }
+
+    /**
+     * Creates a batch for the logger.
+     *
+     * @param logger the logger to log the messages to
+     * @param level  the level of the messages
+     * @param marker the marker of the messages, may be {@code null}
+     *
+     * @return the batch
+     */
+    public static LogBatch create(final Logger logger, final Level level, final Marker marker) {
+        return new LogBatch(logger, level, marker);
+    }
+
+    /**
+     * Indicates whether messages added to the batch are logged. The level, and marker, of the batch is checked when the
+     * batch is created. Messages added to a disabled or closed batch are ignored.
+     *
+     * @return {@code true} if the messages of the batch are logged, otherwise {@code false}
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Logs a message.
+     *
+     * @param message the message
+     *
+     * @return this batch
+     */
+    public LogBatch add(final String message) {
+        if (enabled) {
+            publish(messageFactory.newMessage(message), null);
+        }
+        return this;
+    }
+
+    /**
+     * Logs a message. The parameters are formatted with the message factory of the logger. If the last parameter is a
+     * {@link Throwable} it is logged with the message.
+     *
+     * @param message the message format
+     * @param params  the parameters of the message
+     *
+     * @return this batch
+     */
+    public LogBatch add(final String message, final Object... params) {
+        if (enabled) {
+            publish(messageFactory.newMessage(message, params), null);
+        }
+        return this;
+    }
+
+    /**
+     * Logs a message.
+     *
+     * @param message the message
+     *
+     * @return this batch
+     */
+    public LogBatch add(final Message message) {
+        return add(message, null);
+    }
+
+    /**
+     * Logs a message with a throwable.
+     *
+     * @param message the message
+     * @param t       the throwable, may be {@code null}
+     *
+     * @return this batch
+     */
+    public LogBatch add(final Message message, final Throwable t) {
+        if (enabled) {
+            publish(message, t);
+        }
+        return this;
+    }
+
+    /**
+     * Closes the batch and releases the captured context. Messages added afterwards are ignored.
+     */
+    @Override
+    public void close() {
+        enabled = false;
+        batch = null;
+        context = null;
+    }
+
+    private void publish(final Message message, final Throwable t) {
+        if (batch != null) {
+            ((JBossLogger) logger).publishBatched(batch, message, t);
+        } else {
+            try (ThreadContextSnapshot.Scope ignored = context.restore()) {
+                logger.log(level, marker, message, t);
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jboss.logmanager.LogContext;
+import org.jboss.logmanager.LogContextSelector;
+import org.jboss.logmanager.Logger;
+
+/**
+ * A cache of the {@link LogContext} resolved for a class loader. The class loaders are weakly referenced so they can
+ * be unloaded.
+ * <p>
+ * An entry is only valid as long as the {@link LogContextSelector} used to resolve it is the current selector. Entries
+ * are also evicted when the {@link LogContext} is closed. A selector which resolves a different log context for the same
+ * class loader over time, e.g. once a log context has been registered for the class loader, is not detected. The cache
+ * is therefore only used if enabled with the {@code org.jboss.logmanager.log4j.cacheLogContexts} property.
+ * </p>
+ */
+final class LogContextCache {
+    private static final Logger.AttachmentKey<LogContextCache> CACHE_KEY = new Logger.AttachmentKey<>();
+    private final Map<Object, Entry> entries = new ConcurrentHashMap<>();
+    private final ReferenceQueue<ClassLoader> queue = new ReferenceQueue<>();
+
+    /**
+     * Returns the cached log context for the class loader.
+     *
+     * @param classLoader the class loader to find the log context for
+     *
+     * @return the log context or {@code null} if the log context is not cached or the entry is no longer valid
+     */
+    LogContext get(final ClassLoader classLoader) {
+        expunge();
+        final Entry entry = entries.get(new LookupKey(classLoader));
+        if (entry != null && entry.selector == LogContext.getLogContextSelector()) {
+            return entry.logContext.get();
+        }
+        return null;
+    }
+
+    /**
+     * Caches the log context for the class loader.
+     *
+     * @param classLoader the class loader the log context was resolved for
+     * @param selector    the selector used to resolve the log context
+     * @param logContext  the log context
+     */
+    void put(final ClassLoader classLoader, final LogContextSelector selector, final LogContext logContext) {
+        expunge();
+        final Logger rootLogger = logContext.getLogger("");
+        // Register a close handler only once per log context
+        if (attachIfAbsent(rootLogger, this) == null) {
+            addCloseHandler(logContext, () -> evict(logContext));
+        }
+        entries.put(new WeakKey(classLoader, queue), new Entry(selector, logContext));
+    }
+
+    private void evict(final LogContext logContext) {
+        entries.values().removeIf(entry -> {
+            final LogContext cached = entry.logContext.get();
+            return cached == null || cached == logContext;
+        });
+    }
+
+    private void expunge() {
+        Reference<? extends ClassLoader> ref;
+        while ((ref = queue.poll()) != null) {
+            entries.remove(ref);
+        }
+    }
+
+    private static LogContextCache attachIfAbsent(final Logger logger, final LogContextCache value) {
+        if (System.getSecurityManager() == null) {
+            return logger.attachIfAbsent(CACHE_KEY, value);
+        }
+        return AccessController.doPrivileged((PrivilegedAction<LogContextCache>) () -> logger.attachIfAbsent(CACHE_KEY, value));
+    }
+
+    private static void addCloseHandler(final LogContext logContext, final AutoCloseable closeHandler) {
+        if (System.getSecurityManager() == null) {
+            logContext.addCloseHandler(closeHandler);
+        } else {
+            AccessController.doPrivileged((PrivilegedAction<Object>) () -> {
+                logContext.addCloseHandler(closeHandler);
+                return null;
+            });
+        }
+    }
+
+    private static class Entry {
+        final LogContextSelector selector;
+        // Weakly referenced as the log context may reference the class loader which is the key of the entry
+        final WeakReference<LogContext> logContext;
+
+        private Entry(final LogContextSelector selector, final LogContext logContext) {
+            this.selector = selector;
+            this.logContext = new WeakReference<>(logContext);
+        }
+    }
+
+    private static class WeakKey extends WeakReference<ClassLoader> {
+        private final int hash;
+
+        private WeakKey(final ClassLoader classLoader, final ReferenceQueue<ClassLoader> queue) {
+            super(classLoader, queue);
+            hash = System.identityHashCode(classLoader);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            final ClassLoader classLoader = get();
+            if (classLoader == null) {
+                return false;
+            }
+            if (obj instanceof WeakKey) {
+                return classLoader == ((WeakKey) obj).get();
+            }
+            return obj instanceof LookupKey && classLoader == ((LookupKey) obj).classLoader;
+        }
+    }
+
+    private static class LookupKey {
+        private final ClassLoader classLoader;
+
+        private LookupKey(final ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(classLoader);
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            return obj instanceof WeakKey && classLoader == ((WeakKey) obj).get();
+        }
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.util.PropertiesUtil;
+
+/**
+ * The metrics of a single logger. The counters are striped so concurrent logging threads do not contend on them.
+ * <p>
+ * Metrics are enabled with the {@code org.jboss.logmanager.log4j.metrics} property. When disabled no instances are
+ * created and the loggers only check for a {@code null} metrics instance.
+ * </p>
+ */
+final class LoggerMetrics {
+    private static final boolean ENABLED = PropertiesUtil.getProperties()
+            .getBooleanProperty("org.jboss.logmanager.log4j.metrics");
+    // The standard levels in order of their int level, custom levels are counted with the next less specific level
+    private static final String[] LEVEL_NAMES = {
+            Level.OFF.name(),
+            Level.FATAL.name(),
+            Level.ERROR.name(),
+            Level.WARN.name(),
+            Level.INFO.name(),
+            Level.DEBUG.name(),
+            Level.TRACE.name(),
+            Level.ALL.name(),
+    };
+    // Bucket n holds latencies of less than 2^n nanoseconds, the last bucket holds all greater latencies
+    private static final int LATENCY_BUCKETS = 32;
+
+    private final LongAdder[] enabledChecks = createAdders(LEVEL_NAMES.length);
+    private final LongAdder[] events = createAdders(LEVEL_NAMES.length);
+    private final LongAdder droppedEvents = new LongAdder();
+    private final LongAdder[] latency = createAdders(LATENCY_BUCKETS);
+
+    /**
+     * Indicates whether metrics have been enabled.
+     *
+     * @return {@code true} if metrics should be collected, otherwise {@code false}
+     */
+    static boolean isEnabled() {
+        return ENABLED;
+    }
+
+    /**
+     * Counts an {@code isEnabled()} check.
+     *
+     * @param level the level checked
+     */
+    void enabledCheck(final Level level) {
+        enabledChecks[index(level)].increment();
+    }
+
+    /**
+     * Counts an event passed to the JBoss Log Manager logger.
+     *
+     * @param level the level of the event
+     * @param nanos the time, in nanoseconds, it took to log the event
+     */
+    void event(final Level level, final long nanos) {
+        events[index(level)].increment();
+        latency[nanos <= 0L ? 0 : Math.min(64 - Long.numberOfLeadingZeros(nanos), LATENCY_BUCKETS - 1)].increment();
+    }
+
+    /**
+     * Counts an event which was dropped as the message was {@code null}.
+     */
+    void droppedEvent() {
+        droppedEvents.increment();
+    }
+
+    /**
+     * Returns the number of {@code isEnabled()} checks keyed by the level name.
+     *
+     * @return the number of checks
+     */
+    Map<String, Long> getEnabledChecks() {
+        return toLevelMap(enabledChecks);
+    }
+
+    /**
+     * Returns the number of events keyed by the level name.
+     *
+     * @return the number of events
+     */
+    Map<String, Long> getEvents() {
+        return toLevelMap(events);
+    }
+
+    /**
+     * Returns the total number of {@code isEnabled()} checks.
+     *
+     * @return the number of checks
+     */
+    long getEnabledCheckCount() {
+        return sum(enabledChecks);
+    }
+
+    /**
+     * Returns the total number of events.
+     *
+     * @return the number of events
+     */
+    long getEventCount() {
+        return sum(events);
+    }
+
+    /**
+     * Returns the number of events dropped as the message was {@code null}.
+     *
+     * @return the number of dropped events
+     */
+    long getDroppedEventCount() {
+        return droppedEvents.sum();
+    }
+
+    /**
+     * Returns the number of events per latency bucket. The key is the exclusive upper bound of the bucket, e.g.
+     * {@code <1024ns}. Empty buckets are not included.
+     *
+     * @return the latency histogram
+     */
+    Map<String, Long> getLatencyHistogram() {
+        final Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < LATENCY_BUCKETS; i++) {
+            final long count = latency[i].sum();
+            if (count > 0L) {
+                final String key = i == LATENCY_BUCKETS - 1 ? ">=" + (1L << (i - 1)) + "ns" : "<" + (1L << i) + "ns";
+                result.put(key, count);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Resets all counters.
+     */
+    void reset() {
+        reset(enabledChecks);
+        reset(events);
+        droppedEvents.reset();
+        reset(latency);
+    }
+
+    private static int index(final Level level) {
+        if (level == null) {
+            // A null level is logged at DEBUG
+            return 5;
+        }
+        final int intLevel = level.intLevel();
+        // Checked before the arithmetic, the int level of ALL is Integer.MAX_VALUE
+        if (intLevel > Level.TRACE.intLevel()) {
+            return LEVEL_NAMES.length - 1;
+        }
+        return (intLevel + 99) / 100;
+    }
+
+    private static Map<String, Long> toLevelMap(final LongAdder[] adders) {
+        final Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < adders.length; i++) {
+            final long count = adders[i].sum();
+            if (count > 0L) {
+                result.put(LEVEL_NAMES[i], count);
+            }
+        }
+        return result;
+    }
+
+    private static long sum(final LongAdder[] adders) {
+        long result = 0L;
+        for (LongAdder adder : adders) {
+            result += adder.sum();
+        }
+        return result;
+    }
+
+    private static void reset(final LongAdder[] adders) {
+        for (LongAdder adder : adders) {
+            adder.reset();
+        }
+    }
+
+    private static LongAdder[] createAdders(final int size) {
+        final LongAdder[] result = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            result[i] = new LongAdder();
+        }
+        return result;
+    }
+}
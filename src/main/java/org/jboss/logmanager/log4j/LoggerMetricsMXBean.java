@@ -0,0 +1,97 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.util.Map;
+
+/**
+ * The metrics of the loggers of a log4j logger context, registered with the platform MBean server when the
+ * {@code org.jboss.logmanager.log4j.metrics} property is enabled. The object name is
+ * {@code org.jboss.logmanager.log4j:type=LoggerMetrics,context=<id>}.
+ * <p>
+ * Loggers with the same name, but a different message factory, share the same metrics.
+ * </p>
+ */
+public interface LoggerMetricsMXBean {
+
+    /**
+     * Returns the names of the loggers with metrics.
+     *
+     * @return the logger names
+     */
+    String[] getLoggerNames();
+
+    /**
+     * Returns the number of events passed to the JBoss Log Manager keyed by the logger name. This can be used to find
+     * the loggers which log the most. Loggers without events are not included.
+     *
+     * @return the number of events per logger
+     */
+    Map<String, Long> getEvents();
+
+    /**
+     * Returns the number of {@code isEnabled()} checks keyed by the logger name. Loggers without checks are not
+     * included.
+     *
+     * @return the number of checks per logger
+     */
+    Map<String, Long> getEnabledChecks();
+
+    /**
+     * Returns the number of events dropped as the message was {@code null} keyed by the logger name. Loggers without
+     * dropped events are not included.
+     *
+     * @return the number of dropped events per logger
+     */
+    Map<String, Long> getDroppedEvents();
+
+    /**
+     * Returns the number of events of the logger keyed by the level name.
+     *
+     * @param loggerName the name of the logger
+     *
+     * @return the number of events per level
+     */
+    Map<String, Long> eventsByLevel(String loggerName);
+
+    /**
+     * Returns the number of {@code isEnabled()} checks of the logger keyed by the level name.
+     *
+     * @param loggerName the name of the logger
+     *
+     * @return the number of checks per level
+     */
+    Map<String, Long> enabledChecksByLevel(String loggerName);
+
+    /**
+     * Returns a histogram of the time it took the logger to log events. The key is the exclusive upper bound of the
+     * bucket, e.g. {@code <1024ns}, and the value the number of events.
+     *
+     * @param loggerName the name of the logger
+     *
+     * @return the latency histogram
+     */
+    Map<String, Long> latencyHistogram(String loggerName);
+
+    /**
+     * Resets the metrics of all loggers.
+     */
+    void reset();
+}
@@ -0,0 +1,143 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.util.Arrays;
+
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.util.PropertiesUtil;
+
+/**
+ * Decides whether events with a {@linkplain Marker marker} are logged regardless of the level of the logger. A marker
+ * matches if it, or any of its parents, has one of the configured names.
+ * <p>
+ * Events with a marker matching one of the names in the {@code org.jboss.logmanager.log4j.markers.deny} property are
+ * never logged. Events with a marker matching one of the names in the {@code org.jboss.logmanager.log4j.markers.accept}
+ * property are logged even if the level is not enabled for the logger. Denied markers take precedence.
+ * </p>
+ */
+final class MarkerFilter {
+    private static final String PROPERTY_PREFIX = "org.jboss.logmanager.log4j.markers";
+    private static final MarkerFilter INSTANCE;
+
+    static {
+        final PropertiesUtil properties = PropertiesUtil.getProperties();
+        final String[] denied = parse(properties.getStringProperty(PROPERTY_PREFIX + ".deny"));
+        final String[] accepted = parse(properties.getStringProperty(PROPERTY_PREFIX + ".accept"));
+        INSTANCE = denied.length == 0 && accepted.length == 0 ? null : new MarkerFilter(denied, accepted);
+    }
+
+    /**
+     * The result of filtering a marker.
+     */
+    enum Result {
+        /**
+         * The event is logged regardless of the level.
+         */
+        ACCEPT,
+        /**
+         * The level of the event determines whether it is logged.
+         */
+        NEUTRAL,
+        /**
+         * The event is never logged.
+         */
+        DENY,
+    }
+
+    private final String[] denied;
+    private final String[] accepted;
+
+    /**
+     * Creates a new marker filter.
+     *
+     * @param denied   the names of the markers which are denied
+     * @param accepted the names of the markers which are accepted
+     */
+    MarkerFilter(final String[] denied, final String[] accepted) {
+        this.denied = denied.clone();
+        this.accepted = accepted.clone();
+    }
+
+    /**
+     * Returns the marker filter configured by the {@code org.jboss.logmanager.log4j.markers.deny} and
+     * {@code org.jboss.logmanager.log4j.markers.accept} properties.
+     *
+     * @return the marker filter or {@code null} if no markers are configured
+     */
+    static MarkerFilter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Filters the marker.
+     *
+     * @param marker the marker to filter, may be {@code null}
+     *
+     * @return the result of the filter
+     */
+    Result filter(final Marker marker) {
+        if (marker == null) {
+            return Result.NEUTRAL;
+        }
+        if (matches(marker, denied)) {
+            return Result.DENY;
+        }
+        if (matches(marker, accepted)) {
+            return Result.ACCEPT;
+        }
+        return Result.NEUTRAL;
+    }
+
+    /**
+     * Indicates whether any markers are accepted, in which case an event may be logged even if its level is not
+     * enabled.
+     *
+     * @return {@code true} if markers are accepted, otherwise {@code false}
+     */
+    boolean hasAccepted() {
+        return accepted.length > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "MarkerFilter[denied=" + Arrays.toString(denied) + ", accepted=" + Arrays.toString(accepted) + "]";
+    }
+
+    private static boolean matches(final Marker marker, final String[] names) {
+        for (String name : names) {
+            // Checks the marker and its parents
+            if (marker.isInstanceOf(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] parse(final String value) {
+        if (value == null || value.isBlank()) {
+            return new String[0];
+        }
+        return Arrays.stream(value.split(","))
+                .map(String::trim)
+                .filter(name -> !name.isEmpty())
+                .toArray(String[]::new);
+    }
+}
@@ -0,0 +1,355 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.ReusableMessage;
+import org.apache.logging.log4j.util.Constants;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+import org.apache.logging.log4j.util.StringBuilders;
+import org.jboss.logmanager.ExtLogRecord;
+
+/**
+ * A log record which renders the log4j {@linkplain Message message} only when the message is first requested. A
+ * record rejected by every handler, or by the filters on the handlers, never formats the message.
+ * <p>
+ * Handlers which keep a record beyond the log method, e.g. the asynchronous, queue and delayed handlers, invoke
+ * {@link #copyMdc()} or {@link #copyAll()}. Both render the message, on the logging thread, so mutable parameters are
+ * formatted with the values they had when the event was logged. The message is also rendered before the record is
+ * serialized.
+ * </p>
+ * <p>
+ * The caller is resolved by the {@link CallerLocator}, when a source property is first requested, instead of by the
+ * {@link ExtLogRecord}.
+ * </p>
+ * <p>
+ * An immutable {@linkplain #setContextMap(Map) context map} is read directly by the record. The
+ * {@linkplain #setFields(Map) fields} of a map message are exposed as MDC entries prefixed with {@value #FIELD_PREFIX}.
+ * Both are only copied into the {@link ExtLogRecord} once an entry is modified or the record is serialized.
+ * </p>
+ */
+class MessageLogRecord extends ExtLogRecord {
+    private static final long serialVersionUID = -6418815092541326837L;
+
+    /**
+     * The prefix of the MDC keys of the fields of a map message.
+     */
+    static final String FIELD_PREFIX = "message.";
+
+    // Thread locals may be disabled, e.g. in web applications, to avoid leaking the buffers
+    private static final ThreadLocal<FormatBuffer> FORMAT_BUFFER = Constants.ENABLE_THREADLOCALS
+            ? ThreadLocal.withInitial(FormatBuffer::new)
+            : null;
+
+    private transient volatile Message source;
+    private transient boolean callerResolved;
+    private transient Map<String, ?> contextMap;
+    private transient Map<String, ?> fields;
+
+    /**
+     * Creates a new log record.
+     *
+     * @param level   the JUL level for the record
+     * @param message the log4j message to be rendered
+     * @param fqcn    the fully qualified class name of the logger
+     */
+    MessageLogRecord(final java.util.logging.Level level, final Message message, final String fqcn) {
+        super(level, null, FormatStyle.NO_FORMAT, fqcn);
+        this.source = message;
+        super.disableCallerCalculation();
+        // The super constructor may have invoked the overridden setters
+        callerResolved = !CallerLocator.isEnabled();
+    }
+
+    /**
+     * Sets the context of the record, replacing the {@link org.jboss.logmanager.MDC MDC}. The map is not copied and
+     * must not be modified afterwards.
+     *
+     * @param contextMap the immutable context map
+     */
+    void setContextMap(final Map<String, ?> contextMap) {
+        this.contextMap = contextMap;
+    }
+
+    /**
+     * Sets the fields of a map message, which are exposed as MDC entries prefixed with {@value #FIELD_PREFIX}. The map
+     * is not copied and must not be modified afterwards.
+     *
+     * @param fields the immutable fields of the map message
+     */
+    void setFields(final Map<String, ?> fields) {
+        this.fields = fields;
+    }
+
+    /**
+     * Releases a {@linkplain ReusableMessage reusable} message which has not been rendered yet. Reusable messages may
+     * be reused once the log method returns, so this must be invoked before the record can outlive the log method.
+     * <p>
+     * A handler which keeps a record beyond its publish method must invoke {@link #copyMdc()} or {@link #copyAll()},
+     * which both render the message. A message which has not been rendered was therefore not kept by any handler and
+     * no snapshot of the message is created.
+     * </p>
+     */
+    void detach() {
+        if (source instanceof ReusableMessage) {
+            source = null;
+        }
+    }
+
+    @Override
+    public String getMessage() {
+        final Message source = this.source;
+        if (source != null) {
+            super.setMessage(format(source), FormatStyle.NO_FORMAT);
+            this.source = null;
+        }
+        return super.getMessage();
+    }
+
+    @Override
+    public void setMessage(final String message, final FormatStyle formatStyle) {
+        source = null;
+        super.setMessage(message, formatStyle);
+    }
+
+    @Override
+    public void copyAll() {
+        getMessage();
+        resolveCaller();
+        super.copyAll();
+    }
+
+    @Override
+    public void copyMdc() {
+        // Handlers invoke copyMdc() instead of copyAll() when the caller is not required, the parameters may change
+        // once the log method returns
+        getMessage();
+        // The context map is immutable and does not need to be copied
+        if (contextMap == null) {
+            super.copyMdc();
+        }
+    }
+
+    @Override
+    public String getMdc(final String key) {
+        final Map<String, ?> fields = this.fields;
+        if (fields != null && key.startsWith(FIELD_PREFIX)) {
+            final Object value = fields.get(key.substring(FIELD_PREFIX.length()));
+            if (value != null) {
+                return value.toString();
+            }
+        }
+        final Map<String, ?> contextMap = this.contextMap;
+        if (contextMap == null) {
+            return super.getMdc(key);
+        }
+        final Object value = contextMap.get(key);
+        return value == null ? null : value.toString();
+    }
+
+    @Override
+    public Map<String, String> getMdcCopy() {
+        final Map<String, ?> contextMap = this.contextMap;
+        final Map<String, ?> fields = this.fields;
+        if (contextMap == null && fields == null) {
+            return super.getMdcCopy();
+        }
+        final Map<String, String> copy;
+        if (contextMap == null) {
+            copy = super.getMdcCopy();
+        } else {
+            copy = new HashMap<>(Math.max(16, (int) (contextMap.size() / 0.75f) + 1));
+            putAll(copy, "", contextMap);
+        }
+        if (fields != null) {
+            putAll(copy, FIELD_PREFIX, fields);
+        }
+        return copy;
+    }
+
+    @Override
+    public String putMdc(final String key, final String value) {
+        materializeMdc();
+        return super.putMdc(key, value);
+    }
+
+    @Override
+    public String removeMdc(final String key) {
+        materializeMdc();
+        return super.removeMdc(key);
+    }
+
+    @Override
+    public void setMdc(final Map<?, ?> mdc) {
+        contextMap = null;
+        fields = null;
+        super.setMdc(mdc);
+    }
+
+    @Override
+    public void disableCallerCalculation() {
+        callerResolved = true;
+    }
+
+    @Override
+    public String getSourceClassName() {
+        resolveCaller();
+        return super.getSourceClassName();
+    }
+
+    @Override
+    public void setSourceClassName(final String sourceClassName) {
+        callerResolved = true;
+        super.setSourceClassName(sourceClassName);
+    }
+
+    @Override
+    public String getSourceMethodName() {
+        resolveCaller();
+        return super.getSourceMethodName();
+    }
+
+    @Override
+    public void setSourceMethodName(final String sourceMethodName) {
+        callerResolved = true;
+        super.setSourceMethodName(sourceMethodName);
+    }
+
+    @Override
+    public String getSourceFileName() {
+        resolveCaller();
+        return super.getSourceFileName();
+    }
+
+    @Override
+    public void setSourceFileName(final String sourceFileName) {
+        callerResolved = true;
+        super.setSourceFileName(sourceFileName);
+    }
+
+    @Override
+    public int getSourceLineNumber() {
+        resolveCaller();
+        return super.getSourceLineNumber();
+    }
+
+    @Override
+    public void setSourceLineNumber(final int sourceLineNumber) {
+        callerResolved = true;
+        super.setSourceLineNumber(sourceLineNumber);
+    }
+
+    @Override
+    public String getSourceModuleName() {
+        resolveCaller();
+        return super.getSourceModuleName();
+    }
+
+    @Override
+    public void setSourceModuleName(final String sourceModuleName) {
+        callerResolved = true;
+        super.setSourceModuleName(sourceModuleName);
+    }
+
+    @Override
+    public String getSourceModuleVersion() {
+        resolveCaller();
+        return super.getSourceModuleVersion();
+    }
+
+    @Override
+    public void setSourceModuleVersion(final String sourceModuleVersion) {
+        callerResolved = true;
+        super.setSourceModuleVersion(sourceModuleVersion);
+    }
+
+    /**
+     * Formats the message. Messages which are {@linkplain StringBuilderFormattable formattable} are rendered into a
+     * reusable per-thread buffer, which is trimmed back to {@link Constants#MAX_REUSABLE_MESSAGE_SIZE} after use, so
+     * only the resulting string is allocated.
+     *
+     * @param message the message to format
+     *
+     * @return the formatted message
+     */
+    static String format(final Message message) {
+        if (FORMAT_BUFFER != null && message instanceof StringBuilderFormattable) {
+            final FormatBuffer buffer = FORMAT_BUFFER.get();
+            // The buffer is in use if formatting a parameter of the message formats another message
+            if (!buffer.inUse) {
+                final StringBuilder builder = buffer.builder;
+                buffer.inUse = true;
+                try {
+                    ((StringBuilderFormattable) message).formatTo(builder);
+                    return builder.toString();
+                } finally {
+                    StringBuilders.trimToMaxSize(builder, Constants.MAX_REUSABLE_MESSAGE_SIZE);
+                    builder.setLength(0);
+                    buffer.inUse = false;
+                }
+            }
+        }
+        return message.getFormattedMessage();
+    }
+
+    /**
+     * Serializes the record as a plain {@link ExtLogRecord} with the message rendered.
+     *
+     * @return the record to serialize
+     */
+    protected Object writeReplace() {
+        resolveCaller();
+        materializeMdc();
+        return new ExtLogRecord(this);
+    }
+
+    private void materializeMdc() {
+        if (contextMap != null || fields != null) {
+            setMdc(getMdcCopy());
+        }
+    }
+
+    private static void putAll(final Map<String, String> target, final String prefix, final Map<String, ?> entries) {
+        for (Map.Entry<String, ?> entry : entries.entrySet()) {
+            final Object value = entry.getValue();
+            if (value != null) {
+                target.put(prefix.isEmpty() ? entry.getKey() : prefix + entry.getKey(), value.toString());
+            }
+        }
+    }
+
+    private void resolveCaller() {
+        if (!callerResolved) {
+            callerResolved = true;
+            final StackTraceElement caller = CallerLocator.locate(getLoggerClassName());
+            if (caller != null) {
+                JBossLogger.setSource(this, caller);
+            }
+        }
+    }
+
+    private static class FormatBuffer {
+        final StringBuilder builder = new StringBuilder(Constants.MAX_REUSABLE_MESSAGE_SIZE);
+        boolean inUse;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.util.PropertiesUtil;
+
+/**
+ * A token bucket rate limiter for the events of a single logger. Events are limited before the record is created.
+ * <p>
+ * Rate limiting is enabled with the {@code org.jboss.logmanager.log4j.rateLimit} property, the maximum number of events
+ * per second. Events more specific than the level configured with {@code org.jboss.logmanager.log4j.rateLimit.level},
+ * {@code WARN} by default, are never limited. If {@code org.jboss.logmanager.log4j.rateLimit.perTemplate} is enabled
+ * each message template of the logger is limited separately.
+ * </p>
+ */
+final class RateLimiter {
+    private static final String PROPERTY_PREFIX = "org.jboss.logmanager.log4j.rateLimit";
+    // Limits the number of message templates tracked per logger, templates over the limit share the logger bucket
+    private static final int MAX_TEMPLATES = 1024;
+    private static final int RATE;
+    private static final int BURST;
+    private static final Level LEVEL;
+    private static final boolean PER_TEMPLATE;
+
+    static {
+        final PropertiesUtil properties = PropertiesUtil.getProperties();
+        RATE = properties.getIntegerProperty(PROPERTY_PREFIX, 0);
+        BURST = properties.getIntegerProperty(PROPERTY_PREFIX + ".burst", RATE);
+        LEVEL = Level.toLevel(properties.getStringProperty(PROPERTY_PREFIX + ".level"), Level.WARN);
+        PER_TEMPLATE = properties.getBooleanProperty(PROPERTY_PREFIX + ".perTemplate");
+    }
+
+    /**
+     * Receives the number of events which were suppressed and not reported yet.
+     */
+    interface Summary {
+
+        /**
+         * Invoked for the events of a bucket which were suppressed since the last permitted event.
+         *
+         * @param fqcn       the fully qualified class name of the caller which logged the last suppressed event
+         * @param level      the level of the last suppressed event
+         * @param template   the message template of the bucket or {@code null} if the bucket is shared by all templates
+         * @param suppressed the number of suppressed events
+         */
+        void suppressed(String fqcn, Level level, String template, long suppressed);
+    }
+
+    private final long interval;
+    private final long tolerance;
+    private final int intLevel;
+    private final LongSupplier clock;
+    private final Bucket bucket;
+    private final ConcurrentMap<String, Bucket> templates;
+
+    /**
+     * Creates a new rate limiter.
+     *
+     * @param rate        the maximum number of events per second
+     * @param burst       the maximum number of events allowed at once
+     * @param level       the most specific level which is limited, events of more specific levels are never limited
+     * @param perTemplate {@code true} to limit each message template separately
+     * @param clock       the source of the time in nanoseconds
+     */
+    RateLimiter(final int rate, final int burst, final Level level, final boolean perTemplate,
+            final LongSupplier clock) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("The rate must be greater than 0");
+        }
+        interval = Math.max(1L, TimeUnit.SECONDS.toNanos(1L) / rate);
+        tolerance = interval * Math.max(1, burst);
+        intLevel = level.intLevel();
+        this.clock = clock;
+        bucket = new Bucket(clock.getAsLong());
+        templates = perTemplate ? new ConcurrentHashMap<>() : null;
+    }
+
+    /**
+     * Creates a rate limiter for a logger if rate limiting has been enabled.
+     *
+     * @return a new rate limiter or {@code null} if rate limiting is not enabled
+     */
+    static RateLimiter createIfEnabled() {
+        return RATE > 0 ? new RateLimiter(RATE, BURST, LEVEL, PER_TEMPLATE, System::nanoTime) : null;
+    }
+
+    /**
+     * Attempts to acquire a permit for the event.
+     *
+     * @param fqcn    the fully qualified class name of the caller
+     * @param level   the level of the event
+     * @param message the message of the event
+     *
+     * @return {@code -1} if the event should be suppressed, otherwise the number of events which were suppressed since
+     *         the last permitted event
+     */
+    long acquire(final String fqcn, final Level level, final Message message) {
+        if (level != null && level.intLevel() < intLevel) {
+            return 0L;
+        }
+        final Bucket bucket = getBucket(message);
+        if (bucket.tryAcquire(clock.getAsLong(), interval, tolerance)) {
+            // Avoid the write if nothing was suppressed
+            return bucket.suppressed.get() == 0L ? 0L : bucket.suppressed.getAndSet(0L);
+        }
+        bucket.fqcn = fqcn;
+        bucket.level = level;
+        bucket.suppressed.incrementAndGet();
+        return -1L;
+    }
+
+    /**
+     * Reports the events which were suppressed since the last permitted event of each bucket, e.g. when the logger
+     * context is closed.
+     *
+     * @param summary the summary to report the suppressed events to
+     */
+    void flush(final Summary summary) {
+        flush(bucket, null, summary);
+        if (templates != null) {
+            for (Map.Entry<String, Bucket> entry : templates.entrySet()) {
+                flush(entry.getValue(), entry.getKey(), summary);
+            }
+        }
+    }
+
+    /**
+     * Indicates whether each message template is limited separately.
+     *
+     * @return {@code true} if message templates are limited separately
+     */
+    boolean isPerTemplate() {
+        return templates != null;
+    }
+
+    // The format is only used as the key of the template, there is no replacement which does not format the message
+    @SuppressWarnings("deprecation")
+    private Bucket getBucket(final Message message) {
+        if (templates == null) {
+            return bucket;
+        }
+        final String template = message.getFormat();
+        if (template == null) {
+            return bucket;
+        }
+        final Bucket result = templates.get(template);
+        if (result != null) {
+            return result;
+        }
+        if (templates.size() >= MAX_TEMPLATES) {
+            return bucket;
+        }
+        return templates.computeIfAbsent(template, t -> new Bucket(clock.getAsLong()));
+    }
+
+    private static void flush(final Bucket bucket, final String template, final Summary summary) {
+        // Avoid the write if nothing was suppressed
+        if (bucket.suppressed.get() == 0L) {
+            return;
+        }
+        final long suppressed = bucket.suppressed.getAndSet(0L);
+        if (suppressed > 0L) {
+            summary.suppressed(bucket.fqcn, bucket.level, template, suppressed);
+        }
+    }
+
+    /**
+     * A bucket implemented with the generic cell rate algorithm. Instead of counting tokens, the theoretical arrival time
+     * of the next event is tracked, which only requires a single atomic update per event.
+     */
+    private static class Bucket {
+        private final AtomicLong arrival;
+        final AtomicLong suppressed = new AtomicLong();
+        // The caller and level of the last suppressed event, only used to report events which are still suppressed
+        volatile String fqcn;
+        volatile Level level;
+
+        private Bucket(final long now) {
+            arrival = new AtomicLong(now);
+        }
+
+        boolean tryAcquire(final long now, final long interval, final long tolerance) {
+            while (true) {
+                final long current = arrival.get();
+                // Time may have passed since the last event, which refills the bucket
+                final long next = (current - now > 0L ? current : now) + interval;
+                if (next - now > tolerance) {
+                    return false;
+                }
+                if (arrival.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+    }
+}
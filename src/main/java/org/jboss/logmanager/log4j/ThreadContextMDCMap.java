@@ -19,12 +19,16 @@
 
 package org.jboss.logmanager.log4j;
 
-import java.lang.invoke.MethodHandle;
-import java.lang.invoke.MethodHandles;
-import java.lang.invoke.MethodType;
+import java.util.Collections;
 import java.util.Map;
 
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.spi.ObjectThreadContextMap;
+import org.apache.logging.log4j.spi.ReadOnlyThreadContextMap;
 import org.apache.logging.log4j.spi.ThreadContextMap;
+import org.apache.logging.log4j.util.Constants;
+import org.apache.logging.log4j.util.SortedArrayStringMap;
+import org.apache.logging.log4j.util.StringMap;
 import org.jboss.logmanager.MDC;
 
 /**
@@ -32,28 +36,39 @@ import org.jboss.logmanager.MDC;
  *
  * @author <a href="mailto:jperkins@redhat.com">James R. Perkins</a>
  */
-public class ThreadContextMDCMap implements ThreadContextMap {
-    private static final MethodHandle IS_EMPTY;
+public class ThreadContextMDCMap implements ObjectThreadContextMap, ReadOnlyThreadContextMap {
+    private static final StringMap EMPTY_DATA;
+    // The last context data of each thread, reused while the MDC of the thread does not change. The data is dropped
+    // when the map is changed through the ThreadContext.
+    private static final ThreadLocal<SortedArrayStringMap> CONTEXT_DATA = Constants.ENABLE_THREADLOCALS ? new ThreadLocal<>()
+            : null;
 
     static {
-        // Use MDC.isEmpty() if it's available
-        MethodHandle handle = null;
-        try {
-            handle = MethodHandles.publicLookup()
-                    .findStatic(MDC.class, "isEmpty", MethodType.methodType(boolean.class));
-        } catch (NoSuchMethodException | IllegalAccessException ignore) {
-        }
-        IS_EMPTY = handle;
+        final SortedArrayStringMap data = new SortedArrayStringMap(0);
+        data.freeze();
+        EMPTY_DATA = data;
+    }
+
+    /**
+     * Indicates whether this map is used as the log4j {@link ThreadContext} map. In this case the {@code ThreadContext}
+     * map and the {@link MDC} are the same. This is not the case if another map has been installed, e.g. the
+     * {@link ImmutableThreadContextMap} or a map selected with the {@code log4j2.threadContextMap} property.
+     *
+     * @return {@code true} if the {@code ThreadContext} map is backed by the {@link MDC}, otherwise {@code false}
+     */
+    static boolean isThreadContextMap() {
+        return ThreadContext.getThreadContextMap() instanceof ThreadContextMDCMap;
     }
 
     @Override
     public void clear() {
         MDC.clear();
+        invalidate();
     }
 
     @Override
     public boolean containsKey(final String key) {
-        return MDC.get(key) != null;
+        return MDC.getObject(key) != null;
     }
 
     @Override
@@ -68,21 +83,41 @@ public class ThreadContextMDCMap implements ThreadContextMap {
 
     @Override
     public Map<String, String> getImmutableMapOrNull() {
-        final Map<String, String> copy = MDC.copy();
-        return copy.isEmpty() ? null : Map.copyOf(copy);
+        if (MDC.isEmpty()) {
+            return null;
+        }
+        // The copy is not shared, so wrapping it is enough to make it immutable
+        return Collections.unmodifiableMap(MDC.copy());
     }
 
+    /**
+     * Returns a frozen snapshot of the {@link MDC} of the current thread. The snapshot does not reflect later changes
+     * to the {@link MDC}. The snapshot of the previous invocation is returned, without copying the {@link MDC}, if the
+     * map has not been changed through the {@link ThreadContext} and the entries of the snapshot are still present in
+     * the {@link MDC}. Entries which are only added directly to the {@link MDC} are included in the next snapshot once
+     * the {@link ThreadContext} changes.
+     *
+     * @return a frozen snapshot of the {@link MDC}
+     */
     @Override
-    public boolean isEmpty() {
-        if (IS_EMPTY != null) {
-            try {
-                return (boolean) IS_EMPTY.invoke();
-            } catch (Throwable ignore) {
-                // Ignore and fall through to the fallback
-            }
+    public StringMap getReadOnlyContextData() {
+        if (MDC.isEmpty()) {
+            return EMPTY_DATA;
         }
-        // Fallback to a simple copy/isEmpty. This will not perform well, but also is likely not used much
-        return MDC.copy().isEmpty();
+        if (CONTEXT_DATA == null) {
+            return createData(MDC.copyObject());
+        }
+        SortedArrayStringMap data = CONTEXT_DATA.get();
+        if (data == null || !isCurrent(data)) {
+            data = createData(MDC.copyObject());
+            CONTEXT_DATA.set(data);
+        }
+        return data;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return MDC.isEmpty();
     }
 
     @Override
@@ -92,10 +127,79 @@ public class ThreadContextMDCMap implements ThreadContextMap {
         } else {
             MDC.put(key, value);
         }
+        invalidate();
+    }
+
+    @Override
+    public void putAll(final Map<String, String> map) {
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
     }
 
     @Override
     public void remove(final String key) {
         MDC.remove(key);
+        invalidate();
+    }
+
+    @Override
+    public void removeAll(final Iterable<String> keys) {
+        for (String key : keys) {
+            MDC.remove(key);
+        }
+        invalidate();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V> V getValue(final String key) {
+        return (V) MDC.getObject(key);
+    }
+
+    @Override
+    public <V> void putValue(final String key, final V value) {
+        if (value == null) {
+            MDC.removeObject(key);
+        } else {
+            MDC.putObject(key, value);
+        }
+        invalidate();
+    }
+
+    @Override
+    public <V> void putAllValues(final Map<String, V> values) {
+        for (Map.Entry<String, V> entry : values.entrySet()) {
+            putValue(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Drops the {@linkplain #getReadOnlyContextData() context data} of the current thread. This must be invoked when
+     * the {@link MDC} is replaced directly instead of through the {@link ThreadContext}.
+     */
+    static void invalidate() {
+        if (CONTEXT_DATA != null) {
+            CONTEXT_DATA.remove();
+        }
+    }
+
+    private static boolean isCurrent(final SortedArrayStringMap data) {
+        // Detects entries which were replaced or removed directly through the MDC, without copying the MDC
+        for (int i = 0; i < data.size(); i++) {
+            if (MDC.getObject(data.getKeyAt(i)) != data.getValueAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static SortedArrayStringMap createData(final Map<String, Object> entries) {
+        final SortedArrayStringMap data = new SortedArrayStringMap(entries.size());
+        for (Map.Entry<String, Object> entry : entries.entrySet()) {
+            data.putValue(entry.getKey(), entry.getValue());
+        }
+        data.freeze();
+        return data;
     }
 }
@@ -0,0 +1,315 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.apache.logging.log4j.ThreadContext;
+import org.jboss.logmanager.MDC;
+import org.jboss.logmanager.NDC;
+
+/**
+ * An immutable snapshot of the log4j {@link ThreadContext} map and stack and of the JBoss Log Manager {@link NDC} of a
+ * thread which can be restored on another thread, e.g. when a task is handed off to an executor.
+ * <p>
+ * When the map is backed by the {@link MDC}, capturing the snapshot copies the {@link MDC} of the current thread once.
+ * {@linkplain #restore() Restoring} the snapshot copies the {@link MDC} of the target thread as well, unless it is
+ * empty, and replaces its entries twice; once with the entries of the snapshot and once more with the previous entries
+ * when the scope is closed. With the {@link ImmutableThreadContextMap} both capturing and restoring the map only
+ * exchange a reference, which should be preferred when contexts are propagated for many short tasks.
+ * </p>
+ *
+ * <pre>{@code
+ * final ThreadContextSnapshot snapshot = ThreadContextSnapshot.capture();
+ * CompletableFuture.supplyAsync(snapshot.supplier(this::load), executor)
+ *         .thenApply(snapshot.function(this::transform));
+ * }</pre>
+ */
+public final class ThreadContextSnapshot {
+    private static final String[] EMPTY_NDC = new String[0];
+    private static final ThreadContextSnapshot EMPTY = new ThreadContextSnapshot(null, Collections.emptyMap(),
+            ThreadContext.EMPTY_STACK, EMPTY_NDC);
+
+    private final ImmutableThreadContextMap.Context context;
+    private final Map<String, ?> map;
+    private final ThreadContext.ContextStack stack;
+    private final String[] ndc;
+
+    private ThreadContextSnapshot(final ImmutableThreadContextMap.Context context, final Map<String, ?> map,
+            final ThreadContext.ContextStack stack, final String[] ndc) {
+        this.context = context;
+        this.map = map;
+        this.stack = stack;
+        this.ndc = ndc;
+    }
+
+    /**
+     * Captures the context of the current thread.
+     *
+     * @return the snapshot of the context of the current thread
+     */
+    public static ThreadContextSnapshot capture() {
+        final ThreadContext.ContextStack stack = ThreadContext.getImmutableStack();
+        final String[] ndc = captureNdc();
+        if (ImmutableThreadContextMap.isThreadContextMap()) {
+            final ImmutableThreadContextMap.Context context = ImmutableThreadContextMap.getContext();
+            if (context == null && stack.isEmpty() && ndc.length == 0) {
+                return EMPTY;
+            }
+            return new ThreadContextSnapshot(context, Collections.emptyMap(), stack, ndc);
+        }
+        if (ThreadContextMDCMap.isThreadContextMap()) {
+            if (MDC.isEmpty()) {
+                return stack.isEmpty() && ndc.length == 0 ? EMPTY
+                        : new ThreadContextSnapshot(null, Collections.emptyMap(), stack, ndc);
+            }
+            return new ThreadContextSnapshot(null, Collections.unmodifiableMap(MDC.copyObject()), stack, ndc);
+        }
+        // Another ThreadContext map has been installed, the immutable context is a copy of its entries
+        final Map<String, String> map = ThreadContext.getImmutableContext();
+        if (map.isEmpty() && stack.isEmpty() && ndc.length == 0) {
+            return EMPTY;
+        }
+        return new ThreadContextSnapshot(null, map, stack, ndc);
+    }
+
+    /**
+     * Returns an executor which captures the context of the thread submitting a task and restores it while the task
+     * is executed.
+     *
+     * @param executor the executor to delegate to
+     *
+     * @return the executor
+     */
+    public static Executor executor(final Executor executor) {
+        return task -> executor.execute(capture().runnable(task));
+    }
+
+    /**
+     * Replaces the context of the current thread with this snapshot. The previous context is restored when the returned
+     * scope is closed.
+     * <p>
+     * When the map is backed by the {@link MDC}, the previous entries of the {@link MDC} are copied before they are
+     * replaced.
+     * </p>
+     *
+     * <pre>{@code
+     * try (ThreadContextSnapshot.Scope ignored = snapshot.restore()) {
+     *     logger.info("Logged with the restored context");
+     * }
+     * }</pre>
+     *
+     * @return the scope which restores the previous context
+     */
+    public Scope restore() {
+        final ThreadContextSnapshot previous = capture();
+        apply();
+        return new Scope(previous);
+    }
+
+    /**
+     * Wraps the task so it is run with this snapshot as the context.
+     *
+     * @param task the task to wrap
+     *
+     * @return the wrapped task
+     */
+    public Runnable runnable(final Runnable task) {
+        return () -> {
+            try (Scope ignored = restore()) {
+                task.run();
+            }
+        };
+    }
+
+    /**
+     * Wraps the task so it is called with this snapshot as the context.
+     *
+     * @param task the task to wrap
+     * @param <V>  the type of the result
+     *
+     * @return the wrapped task
+     */
+    public <V> Callable<V> callable(final Callable<V> task) {
+        return () -> {
+            try (Scope ignored = restore()) {
+                return task.call();
+            }
+        };
+    }
+
+    /**
+     * Wraps the supplier, e.g. for {@link java.util.concurrent.CompletableFuture#supplyAsync(Supplier)}, so it is
+     * invoked with this snapshot as the context.
+     *
+     * @param supplier the supplier to wrap
+     * @param <T>      the type of the result
+     *
+     * @return the wrapped supplier
+     */
+    public <T> Supplier<T> supplier(final Supplier<T> supplier) {
+        return () -> {
+            try (Scope ignored = restore()) {
+                return supplier.get();
+            }
+        };
+    }
+
+    /**
+     * Wraps the function, e.g. for {@link java.util.concurrent.CompletableFuture#thenApply(Function)}, so it is invoked
+     * with this snapshot as the context.
+     *
+     * @param function the function to wrap
+     * @param <T>      the type of the argument
+     * @param <R>      the type of the result
+     *
+     * @return the wrapped function
+     */
+    public <T, R> Function<T, R> function(final Function<T, R> function) {
+        return value -> {
+            try (Scope ignored = restore()) {
+                return function.apply(value);
+            }
+        };
+    }
+
+    /**
+     * Wraps the function, e.g. for {@link java.util.concurrent.CompletableFuture#handle(BiFunction)}, so it is invoked
+     * with this snapshot as the context.
+     *
+     * @param function the function to wrap
+     * @param <T>      the type of the first argument
+     * @param <U>      the type of the second argument
+     * @param <R>      the type of the result
+     *
+     * @return the wrapped function
+     */
+    public <T, U, R> BiFunction<T, U, R> biFunction(final BiFunction<T, U, R> function) {
+        return (first, second) -> {
+            try (Scope ignored = restore()) {
+                return function.apply(first, second);
+            }
+        };
+    }
+
+    /**
+     * Wraps the consumer, e.g. for {@link java.util.concurrent.CompletableFuture#thenAccept(Consumer)}, so it is
+     * invoked with this snapshot as the context.
+     *
+     * @param consumer the consumer to wrap
+     * @param <T>      the type of the argument
+     *
+     * @return the wrapped consumer
+     */
+    public <T> Consumer<T> consumer(final Consumer<T> consumer) {
+        return value -> {
+            try (Scope ignored = restore()) {
+                consumer.accept(value);
+            }
+        };
+    }
+
+    /**
+     * Wraps the consumer, e.g. for {@link java.util.concurrent.CompletableFuture#whenComplete(BiConsumer)}, so it is
+     * invoked with this snapshot as the context.
+     *
+     * @param consumer the consumer to wrap
+     * @param <T>      the type of the first argument
+     * @param <U>      the type of the second argument
+     *
+     * @return the wrapped consumer
+     */
+    public <T, U> BiConsumer<T, U> biConsumer(final BiConsumer<T, U> consumer) {
+        return (first, second) -> {
+            try (Scope ignored = restore()) {
+                consumer.accept(first, second);
+            }
+        };
+    }
+
+    private void apply() {
+        if (ImmutableThreadContextMap.isThreadContextMap()) {
+            ImmutableThreadContextMap.setContext(context);
+        } else if (ThreadContextMDCMap.isThreadContextMap()) {
+            if (!(map.isEmpty() && MDC.isEmpty())) {
+                MDC.clear();
+                for (Map.Entry<String, ?> entry : map.entrySet()) {
+                    MDC.putObject(entry.getKey(), entry.getValue());
+                }
+                ThreadContextMDCMap.invalidate();
+            }
+        } else if (!(map.isEmpty() && ThreadContext.isEmpty())) {
+            ThreadContext.clearMap();
+            for (Map.Entry<String, ?> entry : map.entrySet()) {
+                ThreadContext.put(entry.getKey(), String.valueOf(entry.getValue()));
+            }
+        }
+        // The immutable stack is only replaced when the stack changes
+        if (ThreadContext.getImmutableStack() != stack) {
+            if (stack.isEmpty()) {
+                ThreadContext.clearStack();
+            } else {
+                ThreadContext.setStack(stack);
+            }
+        }
+        if (ndc.length != 0 || NDC.getDepth() != 0) {
+            NDC.clear();
+            for (String entry : ndc) {
+                NDC.push(entry);
+            }
+        }
+    }
+
+    private static String[] captureNdc() {
+        final int depth = NDC.getDepth();
+        if (depth == 0) {
+            return EMPTY_NDC;
+        }
+        final String[] ndc = new String[depth];
+        for (int i = 0; i < depth; i++) {
+            ndc[i] = NDC.get(i);
+        }
+        return ndc;
+    }
+
+    /**
+     * A scope in which a snapshot has been restored. Closing the scope restores the context the thread had before.
+     */
+    public static final class Scope implements AutoCloseable {
+        private final ThreadContextSnapshot previous;
+
+        private Scope(final ThreadContextSnapshot previous) {
+            this.previous = previous;
+        }
+
+        @Override
+        public void close() {
+            previous.apply();
+        }
+    }
+}
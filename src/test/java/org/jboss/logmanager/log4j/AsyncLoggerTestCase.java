@@ -0,0 +1,254 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.status.StatusData;
+import org.apache.logging.log4j.status.StatusListener;
+import org.apache.logging.log4j.status.StatusLogger;
+import org.jboss.logmanager.ExtHandler;
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.Level;
+import org.jboss.logmanager.LogContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class AsyncLoggerTestCase extends AbstractTestCase {
+    private static final String LOGGER_NAME = AsyncLoggerTestCase.class.getName();
+
+    @BeforeEach
+    public void clear() {
+        ThreadContext.clearAll();
+    }
+
+    @AfterEach
+    public void clearAfter() {
+        ThreadContext.clearAll();
+    }
+
+    @Test
+    public void testAsyncRecord() {
+        final TestQueueHandler handler = new TestQueueHandler();
+        org.jboss.logmanager.Logger.getLogger("").addHandler(handler);
+        final AsyncDispatcher dispatcher = new AsyncDispatcher(16, AsyncDispatcher.WaitStrategy.BLOCK, Level.INFO);
+        try {
+            final Logger logger = createLogger(dispatcher);
+            final RuntimeException cause = new RuntimeException("test cause");
+            ThreadContext.put("test.key", "test value");
+            ThreadContext.push("ndc-1");
+            final Marker marker = MarkerManager.getMarker("test.async");
+            logger.info(marker, "Test {}", "message", cause);
+            // Changes after the event was logged should not be seen
+            ThreadContext.put("test.key", "changed value");
+            ThreadContext.push("ndc-2");
+            dispatcher.flush();
+
+            final ExtLogRecord record = handler.poll();
+            Assertions.assertNotNull(record);
+            Assertions.assertEquals("Test message", record.getMessage());
+            Assertions.assertEquals(Thread.currentThread().getName(), record.getThreadName());
+            Assertions.assertEquals(Thread.currentThread().getId(), record.getLongThreadID());
+            Assertions.assertEquals("test value", record.getMdc("test.key"));
+            Assertions.assertEquals("ndc-1", record.getNdc());
+            Assertions.assertSame(cause, record.getThrown());
+            Assertions.assertEquals(Level.INFO, record.getLevel());
+            Assertions.assertSame(marker, record.getMarker());
+        } finally {
+            dispatcher.close();
+        }
+    }
+
+    @Test
+    public void testClose() {
+        final TestQueueHandler handler = new TestQueueHandler();
+        org.jboss.logmanager.Logger.getLogger("").addHandler(handler);
+        final AsyncDispatcher dispatcher = new AsyncDispatcher(16, AsyncDispatcher.WaitStrategy.BLOCK, Level.INFO);
+        final Logger logger = createLogger(dispatcher);
+        for (int i = 0; i < 10; i++) {
+            logger.info("Test message {}", i);
+        }
+        dispatcher.close();
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertEquals("Test message " + i, handler.pollFirstFormatted());
+        }
+        // Once closed, events should be logged on the calling thread
+        logger.info("After close");
+        Assertions.assertEquals("After close", handler.pollFirstFormatted());
+        Assertions.assertTrue(handler.isEmpty());
+    }
+
+    @Test
+    public void testRemoveContext() {
+        final TestQueueHandler handler = new TestQueueHandler();
+        org.jboss.logmanager.Logger.getLogger("").addHandler(handler);
+        final AsyncDispatcher dispatcher = new AsyncDispatcher(16, AsyncDispatcher.WaitStrategy.BLOCK, Level.INFO);
+        final JBossLoggerContext loggerContext = new JBossLoggerContext(LogContext.getLogContext(), null, dispatcher,
+                null);
+        final Logger logger = loggerContext.getLogger(LOGGER_NAME);
+        logger.info("Test message");
+        LogManager.getFactory().removeContext(loggerContext);
+        Assertions.assertEquals("Test message", handler.pollFormatted());
+    }
+
+    @Test
+    public void testDrop() throws Exception {
+        final BlockingHandler handler = new BlockingHandler();
+        org.jboss.logmanager.Logger.getLogger("").addHandler(handler);
+        final RecordingStatusListener listener = new RecordingStatusListener();
+        StatusLogger.getLogger().registerListener(listener);
+        final AsyncDispatcher dispatcher = new AsyncDispatcher(2, AsyncDispatcher.WaitStrategy.DROP, Level.INFO);
+        try {
+            final Logger logger = createLogger(dispatcher);
+            logger.error("First message");
+            Assertions.assertTrue(handler.entered.await(5, TimeUnit.SECONDS));
+            // The consumer is blocked, fill the buffer
+            logger.info("Second message");
+            logger.info("Third message");
+            // These should be dropped
+            logger.info("Dropped message");
+            logger.info("Dropped message");
+            Assertions.assertEquals(2L, dispatcher.getDroppedCount());
+            handler.release.countDown();
+            dispatcher.flush();
+            Assertions.assertEquals(List.of("First message", "Second message", "Third message"), handler.messages);
+            // The dropped events are reported once the consumer has made room in the buffer
+            Assertions.assertTrue(listener.messages.stream().anyMatch(m -> m.startsWith("Dropped 2 asynchronous")),
+                    () -> "Dropped events not reported: " + listener.messages);
+        } finally {
+            handler.release.countDown();
+            dispatcher.close();
+            StatusLogger.getLogger().removeListener(listener);
+        }
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        final BlockingHandler handler = new BlockingHandler();
+        org.jboss.logmanager.Logger.getLogger("").addHandler(handler);
+        final AsyncDispatcher dispatcher = new AsyncDispatcher(2, AsyncDispatcher.WaitStrategy.BLOCK, Level.INFO);
+        try {
+            final Logger logger = createLogger(dispatcher);
+            logger.error("Message 0");
+            Assertions.assertTrue(handler.entered.await(5, TimeUnit.SECONDS));
+            final Thread thread = new Thread(() -> {
+                for (int i = 1; i < 5; i++) {
+                    logger.info("Message {}", i);
+                }
+            });
+            thread.start();
+            // The buffer is full, the thread should be waiting for a slot
+            thread.join(200L);
+            Assertions.assertTrue(thread.isAlive());
+            handler.release.countDown();
+            thread.join(TimeUnit.SECONDS.toMillis(5L));
+            Assertions.assertFalse(thread.isAlive());
+            dispatcher.flush();
+            Assertions.assertEquals(List.of("Message 0", "Message 1", "Message 2", "Message 3", "Message 4"),
+                    handler.messages);
+            Assertions.assertEquals(0L, dispatcher.getDroppedCount());
+        } finally {
+            handler.release.countDown();
+            dispatcher.close();
+        }
+    }
+
+    @Test
+    public void testSpin() throws Exception {
+        final TestQueueHandler handler = new TestQueueHandler();
+        org.jboss.logmanager.Logger.getLogger("").addHandler(handler);
+        final AsyncDispatcher dispatcher = new AsyncDispatcher(64, AsyncDispatcher.WaitStrategy.SPIN, Level.INFO);
+        try {
+            final Logger logger = createLogger(dispatcher);
+            final List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                final Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        logger.info("Message {}", i);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            dispatcher.flush();
+            int count = 0;
+            while (handler.poll() != null) {
+                count++;
+            }
+            Assertions.assertEquals(4000, count);
+        } finally {
+            dispatcher.close();
+        }
+    }
+
+    private static Logger createLogger(final AsyncDispatcher dispatcher) {
+        return new JBossLogger(LogContext.getLogContext().getLogger(LOGGER_NAME), null,
+                new JBossLogger.Options().dispatcher(dispatcher));
+    }
+
+    private static class RecordingStatusListener implements StatusListener {
+        final List<String> messages = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void log(final StatusData data) {
+            messages.add(data.getMessage().getFormattedMessage());
+        }
+
+        @Override
+        public org.apache.logging.log4j.Level getStatusLevel() {
+            return org.apache.logging.log4j.Level.WARN;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static class BlockingHandler extends ExtHandler {
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final List<String> messages = new ArrayList<>();
+
+        @Override
+        protected void doPublish(final ExtLogRecord record) {
+            entered.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            messages.add(record.getMessage());
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.jboss.logmanager.ExtLogRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class DuplicateFilterTestCase extends AbstractTestCase {
+    private static final String LOGGER_NAME = DuplicateFilterTestCase.class.getName();
+    private static final String FQCN = DuplicateFilterTestCase.class.getName();
+
+    private final AtomicLong clock = new AtomicLong(-TimeUnit.HOURS.toNanos(1L));
+    private org.jboss.logmanager.Logger lmLogger;
+    private TestQueueHandler handler;
+
+    @BeforeEach
+    public void setup() {
+        lmLogger = org.jboss.logmanager.Logger.getLogger(LOGGER_NAME);
+        // The caller can only be resolved while the record is being published
+        handler = new TestQueueHandler() {
+            @Override
+            protected void doPublish(final ExtLogRecord record) {
+                record.copyAll();
+                super.doPublish(record);
+            }
+        };
+        lmLogger.addHandler(handler);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        lmLogger.removeHandler(handler);
+    }
+
+    @Test
+    public void testDuplicates() {
+        final Logger logger = createLogger(1024);
+        for (int i = 0; i < 5; i++) {
+            logger.warn("Connection {} failed", i, new IllegalStateException("Test " + i));
+        }
+        // A different throwable type, level or format is not a duplicate
+        logger.warn("Connection {} failed", 5, new IllegalArgumentException("Test 5"));
+        logger.error("Connection {} failed", 6, new IllegalStateException("Test 6"));
+        logger.warn("Connection {} closed", 7);
+        Assertions.assertEquals(List.of("Connection 0 failed", "Connection 5 failed", "Connection 6 failed",
+                "Connection 7 closed"), pollAll());
+
+        // The duplicates are reported once the window has expired
+        advance(1000L);
+        logger.warn("Connection {} failed", 8, new IllegalStateException("Test 8"));
+        final ExtLogRecord record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("The message \"Connection {} failed\" with java.lang.IllegalStateException was "
+                + "repeated 4 times", record.getMessage());
+        // The summary is attributed to the caller of the logger
+        Assertions.assertEquals(DuplicateFilterTestCase.class.getName(), record.getSourceClassName());
+        Assertions.assertEquals("testDuplicates", record.getSourceMethodName());
+        Assertions.assertEquals(List.of("Connection 8 failed"), pollAll());
+    }
+
+    @Test
+    public void testFlushExpired() {
+        final Logger logger = createLogger(1024);
+        logger.info("First message");
+        logger.info("First message");
+        advance(1000L);
+        // Logging any event reports the expired windows
+        logger.info("Second message");
+        Assertions.assertEquals(List.of("First message", "The message \"First message\" was repeated 1 times",
+                "Second message"), pollAll());
+    }
+
+    @Test
+    public void testFlushAll() {
+        final JBossLogger logger = createLogger(1024);
+        logger.info("Test message");
+        logger.info("Test message");
+        logger.info("Test message");
+        logger.flushDuplicates();
+        Assertions.assertEquals(List.of("Test message", "The message \"Test message\" was repeated 2 times"), pollAll());
+        // Nothing left to report
+        logger.flushDuplicates();
+        Assertions.assertTrue(handler.isEmpty());
+    }
+
+    @Test
+    public void testMaxEntries() {
+        final Logger logger = createLogger(1);
+        logger.info("First message");
+        logger.info("First message");
+        // The second message can not be tracked and is always logged
+        logger.info("Second message");
+        logger.info("Second message");
+        Assertions.assertEquals(List.of("First message", "Second message", "Second message"), pollAll());
+    }
+
+    @Test
+    public void testConcurrentFlush() throws Exception {
+        final DuplicateFilter duplicateFilter = new DuplicateFilter(TimeUnit.HOURS.toNanos(1L), 1024, clock::get);
+        final Message message = new SimpleMessage("Test message");
+        final AtomicLong logged = new AtomicLong();
+        final AtomicLong repeated = new AtomicLong();
+        final int threads = 4;
+        final int events = 10_000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                try {
+                    for (int j = 0; j < events; j++) {
+                        if (duplicateFilter.filter(FQCN, Level.INFO, message, null) >= 0L) {
+                            logged.incrementAndGet();
+                        }
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        // Windows retired while duplicates are counted must not lose any of them
+        final DuplicateFilter.Summary summary = (fqcn, level, format, throwableType, count) -> repeated.addAndGet(count);
+        while (!done.await(0L, TimeUnit.MILLISECONDS)) {
+            duplicateFilter.flush(true, summary);
+        }
+        duplicateFilter.flush(true, summary);
+        Assertions.assertEquals((long) threads * events, logged.get() + repeated.get());
+    }
+
+    private JBossLogger createLogger(final int maxEntries) {
+        final DuplicateFilter duplicateFilter = new DuplicateFilter(TimeUnit.SECONDS.toNanos(1L), maxEntries, clock::get);
+        return new JBossLogger(lmLogger, null, new JBossLogger.Options().duplicateFilter(duplicateFilter));
+    }
+
+    private void advance(final long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private List<String> pollAll() {
+        final List<String> result = new ArrayList<>();
+        ExtLogRecord record;
+        while ((record = handler.pollFirst()) != null) {
+            result.add(record.getMessage());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.logging.log4j.util.StringMap;
+import org.jboss.logmanager.MDC;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ImmutableThreadContextMapTestCase {
+    private final ImmutableThreadContextMap map = new ImmutableThreadContextMap();
+
+    @AfterEach
+    public void clear() {
+        map.clear();
+    }
+
+    @Test
+    public void putRemove() {
+        Assertions.assertTrue(map.isEmpty());
+        Assertions.assertNull(map.getImmutableMapOrNull());
+
+        map.put("key-1", "value-1");
+        map.putAll(Map.of("key-2", "value-2", "key-3", "value-3"));
+        Assertions.assertEquals("value-1", map.get("key-1"));
+        Assertions.assertTrue(map.containsKey("key-2"));
+        Assertions.assertEquals(Map.of("key-1", "value-1", "key-2", "value-2", "key-3", "value-3"), map.getCopy());
+        // The context is not shared with the MDC
+        Assertions.assertNull(MDC.get("key-1"));
+
+        map.remove("key-1");
+        map.removeAll(List.of("key-2"));
+        Assertions.assertEquals(Map.of("key-3", "value-3"), map.getImmutableMapOrNull());
+
+        map.put("key-3", null);
+        Assertions.assertTrue(map.isEmpty());
+        Assertions.assertTrue(ImmutableThreadContextMap.getContextMap().isEmpty());
+    }
+
+    @Test
+    public void objectValues() {
+        final Object value = new Object();
+        map.putValue("test.key", value);
+        Assertions.assertSame(value, map.getValue("test.key"));
+        Assertions.assertSame(value, ImmutableThreadContextMap.getContextMap().get("test.key"));
+        Assertions.assertEquals(value.toString(), map.get("test.key"));
+
+        map.putAllValues(Map.of("test.key", 1, "other.key", 2));
+        Assertions.assertEquals(1, (Integer) map.getValue("test.key"));
+        Assertions.assertEquals("2", map.get("other.key"));
+    }
+
+    @Test
+    public void snapshotsAreShared() {
+        map.put("test.key", "test value");
+        final Map<String, Object> snapshot = ImmutableThreadContextMap.getContextMap();
+        final Map<String, String> immutable = map.getImmutableMapOrNull();
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> snapshot.put("other.key", "other value"));
+        // The map is only replaced when the context is modified
+        Assertions.assertSame(immutable, map.getImmutableMapOrNull());
+        map.put("test.key", "test value");
+        Assertions.assertSame(snapshot, ImmutableThreadContextMap.getContextMap());
+
+        map.put("test.key", "changed value");
+        Assertions.assertEquals("test value", snapshot.get("test.key"));
+        Assertions.assertEquals("test value", immutable.get("test.key"));
+        Assertions.assertEquals("changed value", map.get("test.key"));
+    }
+
+    @Test
+    public void readOnlyContextData() {
+        StringMap data = map.getReadOnlyContextData();
+        Assertions.assertTrue(data.isFrozen());
+        Assertions.assertTrue(data.isEmpty());
+
+        map.put("test.key", "test value");
+        data = map.getReadOnlyContextData();
+        Assertions.assertTrue(data.isFrozen());
+        Assertions.assertEquals("test value", data.getValue("test.key"));
+        Assertions.assertSame(data, map.getReadOnlyContextData());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> map.getReadOnlyContextData()
+                .putValue("other.key", "other value"));
+    }
+
+    @Test
+    public void inherited() throws Exception {
+        map.put("test.key", "test value");
+        final Map<String, Object> parent = ImmutableThreadContextMap.getContextMap();
+        final AtomicReference<Map<String, Object>> child = new AtomicReference<>();
+        final AtomicReference<Map<String, Object>> modified = new AtomicReference<>();
+        final Thread thread = new Thread(() -> {
+            child.set(ImmutableThreadContextMap.getContextMap());
+            map.put("test.key", "child value");
+            modified.set(ImmutableThreadContextMap.getContextMap());
+        });
+        thread.start();
+        thread.join();
+
+        // The child thread shares the map of the parent until it modifies its own context
+        Assertions.assertSame(parent, child.get());
+        Assertions.assertEquals("child value", modified.get().get("test.key"));
+        Assertions.assertEquals("test value", map.get("test.key"));
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Map;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.Level;
+import org.jboss.logmanager.LogContext;
+import org.jboss.logmanager.MDC;
+import org.jboss.logmanager.formatters.PatternFormatter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ImmutableThreadContextRecordTestCase extends AbstractTestCase {
+    private static final String LOGGER_NAME = ImmutableThreadContextRecordTestCase.class.getName();
+
+    @BeforeEach
+    public void installMap() {
+        System.setProperty("org.jboss.logmanager.log4j.threadContextMap", "immutable");
+        ThreadContext.init();
+        Assertions.assertTrue(ImmutableThreadContextMap.isThreadContextMap());
+    }
+
+    @AfterEach
+    public void restoreMap() {
+        ThreadContext.clearAll();
+        System.clearProperty("org.jboss.logmanager.log4j.threadContextMap");
+        ThreadContext.init();
+        MDC.clear();
+    }
+
+    @Test
+    public void record() throws Exception {
+        final TestQueueHandler handler = new TestQueueHandler(new PatternFormatter("%X{test.key}"));
+        org.jboss.logmanager.Logger.getLogger("").addHandler(handler);
+        final Logger logger = new JBossLogger(LogContext.getLogContext().getLogger(LOGGER_NAME), null,
+                new JBossLogger.Options());
+        ThreadContext.put("test.key", "test value");
+        MDC.put("mdc.key", "mdc value");
+        logger.info("Test message");
+        ThreadContext.put("test.key", "changed value");
+
+        final ExtLogRecord record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("test value", handler.getFormatter().format(record));
+        Assertions.assertEquals("test value", record.getMdc("test.key"));
+        // The context is not shared with the MDC
+        Assertions.assertNull(record.getMdc("mdc.key"));
+        Assertions.assertEquals(Map.of("test.key", "test value"), record.getMdcCopy());
+        record.copyAll();
+        Assertions.assertEquals("test value", record.getMdc("test.key"));
+
+        // Modifying the record does not modify the context
+        record.putMdc("other.key", "other value");
+        Assertions.assertEquals(Map.of("test.key", "test value", "other.key", "other value"), record.getMdcCopy());
+        Assertions.assertNull(ThreadContext.get("other.key"));
+
+        final ExtLogRecord copy = serialize(record);
+        Assertions.assertEquals(Map.of("test.key", "test value", "other.key", "other value"), copy.getMdcCopy());
+    }
+
+    @Test
+    public void serializedRecord() throws Exception {
+        final TestQueueHandler handler = new TestQueueHandler();
+        org.jboss.logmanager.Logger.getLogger("").addHandler(handler);
+        final Logger logger = new JBossLogger(LogContext.getLogContext().getLogger(LOGGER_NAME), null,
+                new JBossLogger.Options());
+        ThreadContext.put("test.key", "test value");
+        logger.info("Test message");
+        ThreadContext.clearMap();
+
+        final ExtLogRecord copy = serialize(handler.pollFirst());
+        Assertions.assertEquals("test value", copy.getMdc("test.key"));
+    }
+
+    @Test
+    public void asyncRecord() {
+        final TestQueueHandler handler = new TestQueueHandler();
+        org.jboss.logmanager.Logger.getLogger("").addHandler(handler);
+        final AsyncDispatcher dispatcher = new AsyncDispatcher(16, AsyncDispatcher.WaitStrategy.BLOCK, Level.INFO);
+        try {
+            final Logger logger = new JBossLogger(LogContext.getLogContext().getLogger(LOGGER_NAME), null,
+                    new JBossLogger.Options().dispatcher(dispatcher));
+            ThreadContext.put("test.key", "test value");
+            logger.info("Test message");
+            ThreadContext.put("test.key", "changed value");
+            dispatcher.flush();
+
+            final ExtLogRecord record = handler.pollFirst();
+            Assertions.assertNotNull(record);
+            Assertions.assertEquals("Test message", record.getMessage());
+            Assertions.assertEquals("test value", record.getMdc("test.key"));
+            Assertions.assertEquals(Map.of("test.key", "test value"), record.getMdcCopy());
+        } finally {
+            dispatcher.close();
+        }
+    }
+
+    @Test
+    public void snapshot() {
+        ThreadContext.put("test.key", "test value");
+        final ThreadContextSnapshot snapshot = ThreadContextSnapshot.capture();
+        ThreadContext.put("test.key", "changed value");
+        try (ThreadContextSnapshot.Scope ignored = snapshot.restore()) {
+            Assertions.assertEquals("test value", ThreadContext.get("test.key"));
+            Assertions.assertNull(MDC.get("test.key"));
+        }
+        Assertions.assertEquals("changed value", ThreadContext.get("test.key"));
+    }
+
+    private static ExtLogRecord serialize(final ExtLogRecord record) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(record);
+        }
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            return (ExtLogRecord) ois.readObject();
+        }
+    }
+}
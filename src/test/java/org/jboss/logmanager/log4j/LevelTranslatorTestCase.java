@@ -77,6 +77,27 @@ public class LevelTranslatorTestCase {
         testLevel(Level.ALL, java.util.logging.Level.ALL);
     }
 
+    @Test
+    public void testCustom() {
+        Assertions.assertEquals(org.jboss.logmanager.Level.FATAL,
+                levelTranslator.translateLevel(Level.forName("TEST_CRITICAL", 50)));
+        Assertions.assertEquals(org.jboss.logmanager.Level.INFO,
+                levelTranslator.translateLevel(Level.forName("TEST_NOTICE", 350)));
+        Assertions.assertEquals(org.jboss.logmanager.Level.TRACE,
+                levelTranslator.translateLevel(Level.forName("TEST_VERBOSE", 550)));
+        Assertions.assertEquals(org.jboss.logmanager.Level.ALL,
+                levelTranslator.translateLevel(Level.forName("TEST_FINEST", 700)));
+        // Custom levels with the same int level as a standard level translate to the standard level
+        Assertions.assertEquals(org.jboss.logmanager.Level.WARN,
+                levelTranslator.translateLevel(Level.forName("TEST_WARNING", Level.WARN.intLevel())));
+    }
+
+    @Test
+    public void testUnknownJulLevel() {
+        Assertions.assertEquals(Level.DEBUG, levelTranslator.translateLevel(new TestLevel("TEST_JUL", 850)));
+        Assertions.assertEquals(Level.DEBUG, levelTranslator.translateLevel(new TestLevel("TEST_HIGH", 5000)));
+    }
+
     @Test
     public void testNull() {
         Assertions.assertEquals(org.jboss.logmanager.Level.DEBUG, levelTranslator.translateLevel((Level) null),
@@ -98,4 +119,11 @@ public class LevelTranslatorTestCase {
         Assertions.assertEquals(expectedJulLevel, levelTranslator.translateLevel(log4jLevel),
                 String.format("Expected JUL level %s to equal log4j level %s", julLevel, log4jLevel));
     }
+
+    private static class TestLevel extends java.util.logging.Level {
+
+        TestLevel(final String name, final int value) {
+            super(name, value);
+        }
+    }
 }
@@ -0,0 +1,136 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.jboss.logmanager.ExtLogRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class LogBatchTestCase extends AbstractTestCase {
+    private final String loggerName = LogBatchTestCase.class.getPackageName();
+    private TestQueueHandler handler;
+
+    @BeforeEach
+    public void setup() {
+        ThreadContext.clearAll();
+        // The caller can only be resolved while the record is being published
+        handler = new TestQueueHandler() {
+            @Override
+            protected void doPublish(final ExtLogRecord record) {
+                record.copyAll();
+                super.doPublish(record);
+            }
+        };
+        final org.jboss.logmanager.Logger lmLogger = org.jboss.logmanager.Logger.getLogger(loggerName);
+        lmLogger.setLevel(java.util.logging.Level.INFO);
+        lmLogger.addHandler(handler);
+    }
+
+    @AfterEach
+    public void clear() {
+        ThreadContext.clearAll();
+    }
+
+    @Test
+    public void batch() {
+        final Logger logger = LogManager.getLogger(loggerName);
+        ThreadContext.put("test.key", "test value");
+        ThreadContext.push("test-ndc");
+        final RuntimeException error = new RuntimeException("Test exception");
+        try (LogBatch batch = LogBatch.create(logger, Level.INFO)) {
+            Assertions.assertTrue(batch.isEnabled());
+            batch.add("Test message 1");
+            // The context was captured when the batch was created
+            ThreadContext.put("test.key", "changed value");
+            ThreadContext.pop();
+            batch.add("Test message {}", 2);
+            batch.add(new SimpleMessage("Test message 3"), error);
+        }
+
+        for (int i = 1; i <= 3; i++) {
+            final ExtLogRecord record = handler.pollFirst();
+            Assertions.assertNotNull(record);
+            Assertions.assertEquals("Test message " + i, record.getMessage());
+            Assertions.assertEquals(java.util.logging.Level.INFO, record.getLevel());
+            Assertions.assertEquals("test value", record.getMdc("test.key"));
+            Assertions.assertEquals("test-ndc", record.getNdc());
+            Assertions.assertEquals(LogBatchTestCase.class.getName(), record.getSourceClassName());
+            Assertions.assertEquals("batch", record.getSourceMethodName());
+            Assertions.assertEquals(i == 3 ? error : null, record.getThrown());
+        }
+        Assertions.assertTrue(handler.isEmpty());
+        // The context of the thread is not changed by the batch
+        Assertions.assertEquals("changed value", ThreadContext.get("test.key"));
+        Assertions.assertEquals(0, ThreadContext.getDepth());
+    }
+
+    @Test
+    public void disabled() {
+        final Logger logger = LogManager.getLogger(loggerName);
+        try (LogBatch batch = LogBatch.create(logger, Level.DEBUG)) {
+            Assertions.assertFalse(batch.isEnabled());
+            batch.add("Test message");
+        }
+        Assertions.assertTrue(handler.isEmpty());
+    }
+
+    @Test
+    public void logged() {
+        final Logger logger = LogManager.getLogger(loggerName);
+        final StringBuilder row = new StringBuilder();
+        final LogBatch batch = LogBatch.create(logger, Level.WARN);
+        for (int i = 1; i <= 2; i++) {
+            // A reused parameter is formatted with its value at the time the message is added
+            row.setLength(0);
+            row.append("row-").append(i);
+            batch.add("Imported {}", row);
+            logger.warn("Other message {}", i);
+        }
+        row.setLength(0);
+
+        // The messages are logged as they are added, in order with the other messages of the logger
+        ExtLogRecord previous = null;
+        for (String expected : new String[] { "Imported row-1", "Other message 1", "Imported row-2",
+                "Other message 2" }) {
+            final ExtLogRecord record = handler.pollFirst();
+            Assertions.assertNotNull(record);
+            Assertions.assertEquals(expected, record.getMessage());
+            if (previous != null) {
+                Assertions.assertFalse(record.getInstant().isBefore(previous.getInstant()));
+                Assertions.assertTrue(record.getSequenceNumber() > previous.getSequenceNumber());
+            }
+            previous = record;
+        }
+        Assertions.assertTrue(handler.isEmpty());
+
+        // Messages added to a closed batch are ignored
+        batch.close();
+        Assertions.assertFalse(batch.isEnabled());
+        batch.add("Test message");
+        Assertions.assertTrue(handler.isEmpty());
+    }
+}
@@ -19,10 +19,21 @@
 
 package org.jboss.logmanager.log4j;
 
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.StringFormatterMessageFactory;
 import org.apache.logging.log4j.spi.LoggerContext;
+import org.jboss.logmanager.ContextClassLoaderLogContextSelector;
+import org.jboss.logmanager.LogContext;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -41,6 +52,23 @@ public class LoggerContextTestCase extends AbstractTestCase {
         Assertions.assertTrue(loggerContext.hasLogger(logger.getName(), StringFormatterMessageFactory.class));
     }
 
+    @Test
+    public void testSameLogger() {
+        final LoggerContext loggerContext = LogManager.getContext();
+        final String name = LoggerContextTestCase.class.getName();
+        Assertions.assertFalse(loggerContext.hasLogger(name));
+        final Logger logger = loggerContext.getLogger(name);
+        Assertions.assertTrue(loggerContext.hasLogger(name));
+        Assertions.assertSame(logger, loggerContext.getLogger(name));
+        Assertions.assertSame(logger, loggerContext.getLogger(name, null));
+        Assertions.assertSame(logger, LogManager.getLogger(name));
+
+        final Logger formatterLogger = loggerContext.getLogger(name, StringFormatterMessageFactory.INSTANCE);
+        Assertions.assertNotSame(logger, formatterLogger);
+        Assertions.assertSame(formatterLogger, loggerContext.getLogger(name, StringFormatterMessageFactory.INSTANCE));
+        Assertions.assertSame(logger, loggerContext.getLogger(name));
+    }
+
     @Test
     public void testExternalContext() {
         final Object externalContext = new Object();
@@ -48,4 +76,93 @@ public class LoggerContextTestCase extends AbstractTestCase {
                 externalContext);
         Assertions.assertEquals(externalContext, loggerContext.getExternalContext());
     }
+
+    @Test
+    public void testSameContext() {
+        final ClassLoader classLoader = LoggerContextTestCase.class.getClassLoader();
+        final LoggerContext loggerContext = LogManager.getContext(classLoader, true);
+        Assertions.assertSame(loggerContext, LogManager.getContext(classLoader, true));
+        Assertions.assertSame(loggerContext, LogManager.getContext(classLoader, true, null));
+
+        final Object externalContext = new Object();
+        final LoggerContext externalLoggerContext = LogManager.getContext(classLoader, true, externalContext);
+        Assertions.assertNotSame(loggerContext, externalLoggerContext);
+        Assertions.assertSame(externalLoggerContext, LogManager.getContext(classLoader, true, externalContext));
+    }
+
+    @Test
+    public void testRemoveContext() {
+        final LoggerContext loggerContext = LogManager.getContext();
+        Assertions.assertSame(loggerContext, LogManager.getContext());
+        LogManager.getFactory().removeContext(loggerContext);
+        final LoggerContext newLoggerContext = LogManager.getContext();
+        Assertions.assertNotSame(loggerContext, newLoggerContext);
+        Assertions.assertSame(newLoggerContext, LogManager.getContext());
+    }
+
+    @Test
+    public void testConcurrentContext() throws Exception {
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final List<Callable<LoggerContext>> tasks = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                tasks.add(LogManager::getContext);
+            }
+            final List<Future<LoggerContext>> results = executor.invokeAll(tasks);
+            final LoggerContext expected = results.get(0).get();
+            for (Future<LoggerContext> result : results) {
+                Assertions.assertSame(expected, result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testClassLoaderContext() throws Exception {
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[0])) {
+            final LoggerContext loggerContext = LogManager.getContext(classLoader, false);
+            Assertions.assertSame(LogContext.getLogContext(), ((JBossLoggerContext) loggerContext).getLogContext());
+            Assertions.assertSame(loggerContext, LogManager.getContext(classLoader, false));
+
+            // Changing the selector should not use the previously resolved log context
+            final LogContext logContext = LogContext.create();
+            LogContext.setLogContextSelector(() -> logContext);
+            final LoggerContext newLoggerContext = LogManager.getContext(classLoader, false);
+            Assertions.assertSame(logContext, ((JBossLoggerContext) newLoggerContext).getLogContext());
+        }
+    }
+
+    @Test
+    public void testRegisteredLogContext() throws Exception {
+        final ContextClassLoaderLogContextSelector selector = new ContextClassLoaderLogContextSelector(
+                LogContext.getLogContextSelector());
+        LogContext.setLogContextSelector(selector);
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[0])) {
+            final LoggerContext loggerContext = LogManager.getContext(classLoader, false);
+            Assertions.assertSame(LogContext.getLogContext(), ((JBossLoggerContext) loggerContext).getLogContext());
+
+            // A log context registered after the first lookup should be used for the class loader
+            final LogContext logContext = LogContext.create();
+            selector.registerLogContext(classLoader, logContext);
+            try {
+                final LoggerContext newLoggerContext = LogManager.getContext(classLoader, false);
+                Assertions.assertSame(logContext, ((JBossLoggerContext) newLoggerContext).getLogContext());
+            } finally {
+                selector.unregisterLogContext(classLoader, logContext);
+            }
+        }
+    }
+
+    @Test
+    public void testLogContextCacheClose() throws Exception {
+        final LogContextCache cache = new LogContextCache();
+        final ClassLoader classLoader = LoggerContextTestCase.class.getClassLoader();
+        final LogContext logContext = LogContext.create();
+        cache.put(classLoader, LogContext.getLogContextSelector(), logContext);
+        Assertions.assertSame(logContext, cache.get(classLoader));
+        logContext.close();
+        Assertions.assertNull(cache.get(classLoader));
+    }
 }
@@ -0,0 +1,172 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.apache.logging.log4j.message.Message;
+import org.jboss.logmanager.LogContext;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class LoggerMetricsTestCase extends AbstractTestCase {
+    private static final String LOGGER_NAME = LoggerMetricsTestCase.class.getName();
+
+    @Test
+    public void testMetrics() {
+        final TestQueueHandler handler = new TestQueueHandler();
+        final org.jboss.logmanager.Logger lmLogger = org.jboss.logmanager.Logger.getLogger(LOGGER_NAME);
+        lmLogger.setLevel(java.util.logging.Level.INFO);
+        lmLogger.addHandler(handler);
+        final ContextMetrics metrics = new ContextMetrics();
+        metrics.register();
+        final JBossLoggerContext loggerContext = new JBossLoggerContext(LogContext.getLogContext(), null, null, metrics);
+        try {
+            final ObjectName objectName = metrics.getObjectName();
+            Assertions.assertNotNull(objectName);
+            final LoggerMetricsMXBean mxBean = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+                    objectName, LoggerMetricsMXBean.class);
+
+            final Logger logger = loggerContext.getLogger(LOGGER_NAME);
+            Assertions.assertFalse(logger.isDebugEnabled());
+            logger.info("Test message 1");
+            logger.info("Test message 2");
+            logger.warn("Test message 3");
+            logger.debug("Test message 4");
+            logger.info((Message) null);
+
+            Assertions.assertArrayEquals(new String[] { LOGGER_NAME }, mxBean.getLoggerNames());
+            Assertions.assertEquals(Map.of(LOGGER_NAME, 3L), mxBean.getEvents());
+            Assertions.assertEquals(Map.of(LOGGER_NAME, 6L), mxBean.getEnabledChecks());
+            Assertions.assertEquals(Map.of(LOGGER_NAME, 1L), mxBean.getDroppedEvents());
+            Assertions.assertEquals(Map.of("INFO", 2L, "WARN", 1L), mxBean.eventsByLevel(LOGGER_NAME));
+            Assertions.assertEquals(Map.of("INFO", 3L, "WARN", 1L, "DEBUG", 2L), mxBean.enabledChecksByLevel(LOGGER_NAME));
+            Assertions.assertEquals(3L, mxBean.latencyHistogram(LOGGER_NAME).values().stream()
+                    .mapToLong(Long::longValue)
+                    .sum());
+            Assertions.assertTrue(mxBean.eventsByLevel("unknown").isEmpty());
+
+            mxBean.reset();
+            Assertions.assertTrue(mxBean.getEvents().isEmpty());
+            Assertions.assertTrue(mxBean.latencyHistogram(LOGGER_NAME).isEmpty());
+        } finally {
+            loggerContext.close();
+            lmLogger.removeHandler(handler);
+        }
+    }
+
+    @Test
+    public void testLevels() {
+        final LoggerMetrics metrics = new LoggerMetrics();
+        metrics.enabledCheck(Level.ALL);
+        metrics.enabledCheck(Level.forName("TEST_METRICS_FINE", 450));
+        metrics.enabledCheck(Level.forName("TEST_METRICS_FINEST", 650));
+        metrics.event(Level.ALL, 1L);
+        metrics.event(Level.TRACE, 1L);
+        // Custom levels are counted with the next less specific standard level
+        Assertions.assertEquals(Map.of("DEBUG", 1L, "ALL", 2L), metrics.getEnabledChecks());
+        Assertions.assertEquals(Map.of("TRACE", 1L, "ALL", 1L), metrics.getEvents());
+
+        // The ALL level is checked and logged by loggers with metrics
+        final TestQueueHandler handler = new TestQueueHandler();
+        final org.jboss.logmanager.Logger lmLogger = org.jboss.logmanager.Logger.getLogger(LOGGER_NAME);
+        lmLogger.setLevel(java.util.logging.Level.ALL);
+        lmLogger.addHandler(handler);
+        try {
+            final Logger logger = new JBossLogger(lmLogger, null, new JBossLogger.Options().metrics(metrics));
+            Assertions.assertTrue(logger.isEnabled(Level.ALL));
+            logger.log(Level.ALL, "Test message");
+            Assertions.assertNotNull(handler.poll());
+            Assertions.assertEquals(Map.of("DEBUG", 1L, "ALL", 4L), metrics.getEnabledChecks());
+            Assertions.assertEquals(Map.of("TRACE", 1L, "ALL", 2L), metrics.getEvents());
+        } finally {
+            lmLogger.removeHandler(handler);
+            lmLogger.setLevel(null);
+        }
+    }
+
+    @Test
+    public void testLogBuilderMarker() {
+        final Marker audit = MarkerManager.getMarker("TEST_METRICS_AUDIT");
+        final LoggerMetrics metrics = new LoggerMetrics();
+        final TestQueueHandler handler = new TestQueueHandler();
+        final org.jboss.logmanager.Logger lmLogger = org.jboss.logmanager.Logger.getLogger(LOGGER_NAME);
+        lmLogger.setLevel(java.util.logging.Level.INFO);
+        lmLogger.addHandler(handler);
+        try {
+            final Logger logger = new JBossLogger(lmLogger, null, new JBossLogger.Options()
+                    .metrics(metrics)
+                    .markerFilter(new MarkerFilter(new String[0], new String[] { audit.getName() })));
+            // The level of a log builder with a marker is checked once
+            logger.atDebug().withMarker(audit).log("Test message");
+            Assertions.assertNotNull(handler.poll());
+            Assertions.assertEquals(Map.of("DEBUG", 1L), metrics.getEnabledChecks());
+            Assertions.assertEquals(Map.of("DEBUG", 1L), metrics.getEvents());
+        } finally {
+            lmLogger.removeHandler(handler);
+            lmLogger.setLevel(null);
+        }
+    }
+
+    @Test
+    public void testUnregister() throws Exception {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ContextMetrics metrics = new ContextMetrics();
+        metrics.register();
+        final ObjectName objectName = metrics.getObjectName();
+        Assertions.assertNotNull(objectName);
+        Assertions.assertTrue(server.isRegistered(objectName));
+
+        // Closing the log context should unregister the metrics
+        final LogContext logContext = LogContext.create();
+        new JBossLoggerContext(logContext, null, null, metrics);
+        logContext.close();
+        Assertions.assertFalse(server.isRegistered(objectName));
+        Assertions.assertNull(metrics.getObjectName());
+    }
+
+    @Test
+    public void testRemovedContext() throws Exception {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        final ContextMetrics metrics = new ContextMetrics();
+        final LogContext logContext = LogContext.create();
+        final JBossLoggerContext loggerContext = new JBossLoggerContext(logContext, null, null, metrics);
+        loggerContext.close();
+
+        // A closed logger context is no longer closed with the log context
+        metrics.register();
+        final ObjectName objectName = metrics.getObjectName();
+        try {
+            logContext.close();
+            Assertions.assertTrue(server.isRegistered(objectName));
+        } finally {
+            metrics.unregister();
+        }
+    }
+}
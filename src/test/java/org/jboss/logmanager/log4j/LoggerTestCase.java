@@ -19,21 +19,43 @@
 
 package org.jboss.logmanager.log4j;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogBuilder;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.MarkerManager;
+import org.apache.logging.log4j.ThreadContext;
 import org.apache.logging.log4j.message.AbstractMessageFactory;
 import org.apache.logging.log4j.message.Message;
 import org.apache.logging.log4j.message.MessageFactory;
 import org.apache.logging.log4j.message.MessageFactory2;
+import org.apache.logging.log4j.message.ReusableMessageFactory;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.apache.logging.log4j.message.StringMapMessage;
+import org.apache.logging.log4j.message.StructuredDataMessage;
+import org.apache.logging.log4j.util.Constants;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+import org.apache.logging.log4j.util.Supplier;
+import org.jboss.logmanager.ExtHandler;
 import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.MDC;
+import org.jboss.logmanager.handlers.AsyncHandler;
+import org.jboss.logmanager.handlers.QueueHandler;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -220,6 +242,242 @@ public class LoggerTestCase extends AbstractTestCase {
         Assertions.assertFalse(LogManager.getFormatterLogger(loggerName).isEnabled(Level.OFF, marker));
     }
 
+    @Test
+    public void testLevelChange() {
+        final Logger logger = LogManager.getLogger(LoggerTestCase.class);
+        Assertions.assertTrue(logger.isInfoEnabled());
+        Assertions.assertFalse(logger.isDebugEnabled());
+
+        // Change the level on the parent logger
+        lmLogger.setLevel(org.jboss.logmanager.Level.DEBUG);
+        Assertions.assertTrue(logger.isDebugEnabled());
+        Assertions.assertFalse(logger.isTraceEnabled());
+
+        // Change the level on the logger itself
+        final org.jboss.logmanager.Logger child = org.jboss.logmanager.Logger.getLogger(LoggerTestCase.class.getName());
+        child.setLevel(org.jboss.logmanager.Level.WARN);
+        Assertions.assertFalse(logger.isInfoEnabled());
+        Assertions.assertTrue(logger.isWarnEnabled());
+
+        // Remove the level from the logger, the parent level should be used again
+        child.setLevel(null);
+        Assertions.assertTrue(logger.isDebugEnabled());
+
+        lmLogger.setLevel(org.jboss.logmanager.Level.OFF);
+        Assertions.assertFalse(logger.isFatalEnabled());
+        Assertions.assertFalse(logger.isEnabled(Level.OFF));
+    }
+
+    @Test
+    public void testCustomLevel() {
+        final Level level = Level.forName("TEST_NOTICE", 350);
+        final Logger logger = LogManager.getLogger(loggerName);
+        Assertions.assertTrue(logger.isEnabled(level));
+        logger.log(level, "Test custom level");
+        final ExtLogRecord record = handler.poll();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals(org.jboss.logmanager.Level.INFO, record.getLevel());
+
+        lmLogger.setLevel(org.jboss.logmanager.Level.WARN);
+        Assertions.assertFalse(logger.isEnabled(level));
+        logger.log(level, "Test custom level");
+        Assertions.assertTrue(handler.isEmpty());
+    }
+
+    @Test
+    public void testLazyFormatting() throws Exception {
+        final Logger logger = LogManager.getLogger(loggerName);
+        final CountingMessage message = new CountingMessage("Test lazy message");
+
+        // A handler which rejects the record should not format the message
+        handler.setLevel(org.jboss.logmanager.Level.WARN);
+        logger.info(message);
+        Assertions.assertTrue(handler.isEmpty());
+        Assertions.assertEquals(0, message.count);
+
+        handler.setLevel(org.jboss.logmanager.Level.ALL);
+        logger.info(message);
+        final ExtLogRecord record = handler.poll();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals(0, message.count);
+        Assertions.assertEquals("Test lazy message", record.getMessage());
+        Assertions.assertEquals("Test lazy message", record.getMessage());
+        Assertions.assertEquals(1, message.count);
+
+        // Copied records should have the message rendered
+        logger.info(message);
+        final ExtLogRecord copied = handler.poll();
+        copied.copyAll();
+        Assertions.assertEquals(2, message.count);
+        Assertions.assertEquals("Test lazy message", new ExtLogRecord(copied).getMessage());
+        Assertions.assertEquals(2, message.count);
+
+        // Serialized records should have the message rendered
+        logger.info(message);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+            oos.writeObject(handler.poll());
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            final ExtLogRecord deserialized = (ExtLogRecord) in.readObject();
+            Assertions.assertEquals("Test lazy message", deserialized.getMessage());
+        }
+        Assertions.assertEquals(3, message.count);
+    }
+
+    @Test
+    public void testQueueHandler() {
+        final Logger logger = LogManager.getLogger(loggerName);
+        final QueueHandler queueHandler = new QueueHandler();
+        lmLogger.addHandler(queueHandler);
+        try {
+            // The queue handler keeps the record, the message is rendered with the value at the time of the event
+            final StringBuilder value = new StringBuilder("before");
+            logger.info("value={}", value);
+            value.setLength(0);
+            value.append("after");
+            final ExtLogRecord[] records = queueHandler.getQueue();
+            Assertions.assertEquals(1, records.length);
+            Assertions.assertEquals("value=before", records[0].getMessage());
+        } finally {
+            lmLogger.removeHandler(queueHandler);
+        }
+    }
+
+    @Test
+    public void testAsyncHandler() throws Exception {
+        final Logger logger = LogManager.getLogger(loggerName);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final CompletableFuture<String> published = new CompletableFuture<>();
+        final ExtHandler delegate = new ExtHandler() {
+            @Override
+            protected void doPublish(final ExtLogRecord record) {
+                try {
+                    latch.await(5, TimeUnit.SECONDS);
+                    published.complete(record.getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    published.completeExceptionally(e);
+                }
+            }
+        };
+        final AsyncHandler asyncHandler = new AsyncHandler();
+        asyncHandler.addHandler(delegate);
+        lmLogger.addHandler(asyncHandler);
+        try {
+            // The record is handed off before the parameter changes and published once it has changed
+            final StringBuilder value = new StringBuilder("before");
+            logger.info("value={}", value);
+            value.setLength(0);
+            value.append("after");
+            latch.countDown();
+            Assertions.assertEquals("value=before", published.get(5, TimeUnit.SECONDS));
+        } finally {
+            lmLogger.removeHandler(asyncHandler);
+            asyncHandler.close();
+        }
+    }
+
+    @Test
+    public void testLogBuilder() {
+        final Logger logger = LogManager.getLogger(loggerName);
+        final RuntimeException cause = new RuntimeException("Test cause");
+        logger.atInfo().withThrowable(cause).log("Test message {}", 1);
+        ExtLogRecord record = handler.poll();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("Test message 1", record.getMessage());
+        Assertions.assertEquals(org.jboss.logmanager.Level.INFO, record.getLevel());
+        Assertions.assertSame(cause, record.getThrown());
+
+        // The previous state should not be used for the next event
+        logger.atWarn().log("Test message {} {}", 1, 2);
+        record = handler.poll();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("Test message 1 2", record.getMessage());
+        Assertions.assertNull(record.getThrown());
+
+        // A disabled level should return the no-op builder
+        Assertions.assertSame(LogBuilder.NOOP, logger.atDebug());
+        logger.atDebug().log("Disabled message");
+        Assertions.assertTrue(handler.isEmpty());
+    }
+
+    @Test
+    public void testCallerLocation() {
+        // The caller can only be resolved while the record is being published
+        final TestQueueHandler handler = new TestQueueHandler() {
+            @Override
+            protected void doPublish(final ExtLogRecord record) {
+                record.copyAll();
+                super.doPublish(record);
+            }
+        };
+        org.jboss.logmanager.Logger.getLogger(loggerName).addHandler(handler);
+        final Logger logger = LogManager.getLogger(loggerName);
+        for (int i = 0; i < 2; i++) {
+            logger.info("First call site");
+            logger.info("Second call site");
+        }
+        final ExtLogRecord first = handler.pollFirst();
+        final ExtLogRecord second = handler.pollFirst();
+        Assertions.assertNotNull(first);
+        Assertions.assertNotNull(second);
+        Assertions.assertEquals(LoggerTestCase.class.getName(), first.getSourceClassName());
+        Assertions.assertEquals("testCallerLocation", first.getSourceMethodName());
+        Assertions.assertEquals("LoggerTestCase.java", first.getSourceFileName());
+        Assertions.assertEquals(first.getSourceLineNumber() + 1, second.getSourceLineNumber());
+
+        // Repeated calls from the same call site resolve the same location
+        final ExtLogRecord repeatedFirst = handler.pollFirst();
+        final ExtLogRecord repeatedSecond = handler.pollFirst();
+        Assertions.assertNotNull(repeatedFirst);
+        Assertions.assertNotNull(repeatedSecond);
+        Assertions.assertEquals(LoggerTestCase.class.getName(), repeatedFirst.getSourceClassName());
+        Assertions.assertEquals("testCallerLocation", repeatedFirst.getSourceMethodName());
+        Assertions.assertEquals(first.getSourceLineNumber(), repeatedFirst.getSourceLineNumber());
+        Assertions.assertEquals(LoggerTestCase.class.getName(), repeatedSecond.getSourceClassName());
+        Assertions.assertEquals("testCallerLocation", repeatedSecond.getSourceMethodName());
+        Assertions.assertEquals(second.getSourceLineNumber(), repeatedSecond.getSourceLineNumber());
+    }
+
+    @Test
+    public void testLogBuilderLocation() {
+        final Logger logger = LogManager.getLogger(loggerName);
+        logger.atInfo().withLocation().log("Test message");
+        ExtLogRecord record = handler.poll();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals(LoggerTestCase.class.getName(), record.getSourceClassName());
+        Assertions.assertEquals("testLogBuilderLocation", record.getSourceMethodName());
+
+        final StackTraceElement location = new StackTraceElement("org.jboss.Test", "test", "Test.java", 10);
+        logger.atInfo().withLocation(location).log("Test message");
+        record = handler.poll();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("org.jboss.Test", record.getSourceClassName());
+        Assertions.assertEquals("test", record.getSourceMethodName());
+        Assertions.assertEquals("Test.java", record.getSourceFileName());
+        Assertions.assertEquals(10, record.getSourceLineNumber());
+    }
+
+    @Test
+    public void testLogBuilderNested() {
+        final Logger logger = LogManager.getLogger(loggerName);
+        final Supplier<String> param = () -> {
+            // The outer builder is still in use
+            logger.atWarn().log("Nested message");
+            return "nested";
+        };
+        logger.atInfo().log("Test message {}", new Supplier<?>[] { param });
+        ExtLogRecord record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("Nested message", record.getMessage());
+        Assertions.assertEquals(org.jboss.logmanager.Level.WARN, record.getLevel());
+        record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("Test message nested", record.getMessage());
+        Assertions.assertEquals(org.jboss.logmanager.Level.INFO, record.getLevel());
+    }
+
     private void testLevelEnabled(final Logger logger, final Level level) {
         final String msg = String.format("Expected level %s to be enabled on logger %s", level, logger);
         final String markerMsg = String.format("Expected level %s to be enabled on logger %s with marker %s", level, logger,
@@ -247,6 +505,197 @@ public class LoggerTestCase extends AbstractTestCase {
         }
     }
 
+    @Test
+    public void testMapMessage() {
+        final Logger logger = LogManager.getLogger(loggerName);
+        final StringMapMessage message = new StringMapMessage()
+                .with("name", "test")
+                .with("count", 5)
+                .with("enabled", true);
+        ThreadContext.put("name", "context");
+        logger.info(message);
+        final ExtLogRecord record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        // Copy the MDC of the record before the context is cleared
+        record.copyMdc();
+        ThreadContext.remove("name");
+        Assertions.assertArrayEquals(message.getParameters(), record.getParameters());
+        // The fields are namespaced and do not replace entries of the context
+        Assertions.assertEquals("context", record.getMdc("name"));
+        Assertions.assertEquals("test", record.getMdc("message.name"));
+        Assertions.assertEquals("5", record.getMdc("message.count"));
+        Assertions.assertNull(MDC.get("message.name"));
+        Assertions.assertEquals(Map.of("name", "context", "message.name", "test", "message.count", "5", "message.enabled",
+                "true"), record.getMdcCopy());
+        Assertions.assertEquals(message.getFormattedMessage(), record.getMessage());
+
+        // Modifying the record keeps the fields
+        record.putMdc("other.key", "other value");
+        Assertions.assertEquals("test", record.getMdc("message.name"));
+        Assertions.assertEquals("other value", record.getMdc("other.key"));
+    }
+
+    @Test
+    public void testStructuredDataMessage() {
+        final Logger logger = LogManager.getLogger(loggerName);
+        final StructuredDataMessage message = new StructuredDataMessage("test-id", "Test message", "test-type");
+        message.with("count", 5L);
+        logger.info(message);
+        final ExtLogRecord record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        Assertions.assertArrayEquals(message.getParameters(), record.getParameters());
+        Assertions.assertEquals("5", record.getMdc("message.count"));
+        Assertions.assertNull(record.getMdc("count"));
+    }
+
+    @Test
+    public void testMarkerPropagated() {
+        final Logger logger = LogManager.getLogger(loggerName);
+        logger.info(marker, "Test message");
+        final ExtLogRecord record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        Assertions.assertSame(marker, record.getMarker());
+    }
+
+    @Test
+    public void testMarkerFilter() {
+        final Marker audit = MarkerManager.getMarker("TEST_AUDIT");
+        final Marker securityAudit = MarkerManager.getMarker("TEST_SECURITY_AUDIT").setParents(audit);
+        final Marker noisy = MarkerManager.getMarker("TEST_NOISY");
+        final Logger logger = new JBossLogger(lmLogger, null, new JBossLogger.Options()
+                .markerFilter(new MarkerFilter(new String[] { noisy.getName() }, new String[] { audit.getName() })));
+
+        // Accepted markers, including child markers, bypass the level of the logger
+        Assertions.assertFalse(logger.isDebugEnabled());
+        Assertions.assertTrue(logger.isDebugEnabled(audit));
+        Assertions.assertTrue(logger.isTraceEnabled(securityAudit));
+        logger.debug(audit, "Audit message");
+        logger.trace(securityAudit, "Security audit message");
+        ExtLogRecord record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("Audit message", record.getMessage());
+        Assertions.assertSame(audit, record.getMarker());
+        record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("Security audit message", record.getMessage());
+        Assertions.assertSame(securityAudit, record.getMarker());
+
+        // The fluent API applies the accepted markers as well
+        logger.atDebug().withMarker(audit).log("Fluent audit message");
+        logger.atDebug().log("Fluent debug message");
+        logger.atDebug().withMarker(marker).log("Fluent marker message");
+        record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("Fluent audit message", record.getMessage());
+        Assertions.assertSame(audit, record.getMarker());
+        Assertions.assertTrue(handler.isEmpty());
+
+        // Denied markers are not logged regardless of the level
+        Assertions.assertTrue(logger.isInfoEnabled());
+        Assertions.assertFalse(logger.isErrorEnabled(noisy));
+        final CountingMessage message = new CountingMessage("Noisy message");
+        logger.error(noisy, message);
+        logger.atError().withMarker(noisy).log("Noisy message");
+        Assertions.assertTrue(handler.isEmpty());
+        Assertions.assertEquals(0, message.count);
+
+        // Messages of the fluent API are not created for events which are not logged
+        final AtomicInteger created = new AtomicInteger();
+        final Supplier<Message> supplier = () -> {
+            created.incrementAndGet();
+            return new SimpleMessage("Created message");
+        };
+        logger.atError().withMarker(noisy).log(supplier);
+        logger.atDebug().withMarker(marker).log(supplier);
+        Assertions.assertNull(logger.atError().withMarker(noisy).logAndGet(supplier));
+        Assertions.assertTrue(handler.isEmpty());
+        Assertions.assertEquals(0, created.get());
+
+        // Other markers only depend on the level
+        Assertions.assertTrue(logger.isInfoEnabled(marker));
+        Assertions.assertFalse(logger.isDebugEnabled(marker));
+    }
+
+    @Test
+    public void testReusableMessages() {
+        // Reusable messages are opt-in
+        Assertions.assertFalse(LogManager.getLogger(loggerName).getMessageFactory() instanceof ReusableMessageFactory);
+        final TestQueueHandler handler = new TestQueueHandler() {
+            @Override
+            protected void doPublish(final ExtLogRecord record) {
+                record.copyAll();
+                super.doPublish(record);
+            }
+        };
+        lmLogger.addHandler(handler);
+        final Logger logger = LogManager.getLogger(loggerName, ReusableMessageFactory.INSTANCE);
+        // The handler keeps copies of the records, the messages must not be affected by reuse
+        logger.info("Test message {} {}", "a", 1);
+        logger.info("Test message {} {}", "b", 2);
+        logger.info("Test message");
+        ExtLogRecord record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("Test message a 1", record.getMessage());
+        Assertions.assertArrayEquals(new Object[] { "a", 1 }, record.getParameters());
+        record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("Test message b 2", record.getMessage());
+        Assertions.assertArrayEquals(new Object[] { "b", 2 }, record.getParameters());
+        record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("Test message", record.getMessage());
+        lmLogger.removeHandler(handler);
+
+        // The queue handler only copies the MDC of the records it keeps
+        final QueueHandler queueHandler = new QueueHandler();
+        lmLogger.addHandler(queueHandler);
+        try {
+            logger.info("Queued message {}", "a");
+            logger.info("Queued message {}", "b");
+            final ExtLogRecord[] records = queueHandler.getQueue();
+            Assertions.assertEquals(2, records.length);
+            Assertions.assertEquals("Queued message a", records[0].getMessage());
+            Assertions.assertEquals("Queued message b", records[1].getMessage());
+        } finally {
+            lmLogger.removeHandler(queueHandler);
+        }
+    }
+
+    @Test
+    public void testStringBuilderFormattable() {
+        final Logger logger = LogManager.getLogger(loggerName);
+        final FormattableMessage message = new FormattableMessage("Test message", null);
+        logger.info(message);
+        ExtLogRecord record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("Test message", record.getMessage());
+        Assertions.assertEquals(1, message.formatToCount);
+        Assertions.assertEquals(0, message.formattedMessageCount);
+
+        // A message larger than the reusable buffer followed by a smaller message
+        final String largeMessage = "x".repeat(Constants.MAX_REUSABLE_MESSAGE_SIZE * 4);
+        logger.info(new FormattableMessage(largeMessage, null));
+        logger.info(new FormattableMessage("Small message", null));
+        record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals(largeMessage, record.getMessage());
+        record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("Small message", record.getMessage());
+    }
+
+    @Test
+    public void testStringBuilderFormattableNested() {
+        final FormattableMessage inner = new FormattableMessage("inner", null);
+        final String[] nested = new String[1];
+        final FormattableMessage outer = new FormattableMessage("outer", () -> nested[0] = MessageLogRecord.format(inner));
+        Assertions.assertEquals("outer", MessageLogRecord.format(outer));
+        Assertions.assertEquals("inner", nested[0]);
+        // The buffer is in use while the outer message is formatted
+        Assertions.assertEquals(0, inner.formatToCount);
+        Assertions.assertEquals(1, inner.formattedMessageCount);
+    }
+
     private static String generatePrefix() {
         return "[" + UUID.randomUUID().toString() + "] ";
     }
@@ -289,6 +738,68 @@ public class LoggerTestCase extends AbstractTestCase {
         }
     }
 
+    private static class CountingMessage implements Message {
+        private final String msg;
+        private int count;
+
+        private CountingMessage(final String msg) {
+            this.msg = msg;
+        }
+
+        @Override
+        public String getFormattedMessage() {
+            count++;
+            return msg;
+        }
+
+        @Override
+        public Object[] getParameters() {
+            return null;
+        }
+
+        @Override
+        public Throwable getThrowable() {
+            return null;
+        }
+    }
+
+    private static class FormattableMessage implements Message, StringBuilderFormattable {
+        private final String msg;
+        private final Runnable onFormat;
+        private int formatToCount;
+        private int formattedMessageCount;
+
+        private FormattableMessage(final String msg, final Runnable onFormat) {
+            this.msg = msg;
+            this.onFormat = onFormat;
+        }
+
+        @Override
+        public void formatTo(final StringBuilder buffer) {
+            formatToCount++;
+            if (onFormat != null) {
+                onFormat.run();
+            }
+            buffer.append(msg);
+        }
+
+        @Override
+        public String getFormattedMessage() {
+            formattedMessageCount++;
+            return msg;
+        }
+
+        @Override
+        public Object[] getParameters() {
+            return null;
+        }
+
+        @Override
+        public Throwable getThrowable() {
+            return null;
+        }
+    }
+
     private static class TestMessage implements Message {
         private final String format;
         private final Object[] params;
@@ -316,6 +827,7 @@ public class LoggerTestCase extends AbstractTestCase {
         }
 
         @Override
+        @SuppressWarnings("deprecation")
         public String getFormat() {
             return format;
         }
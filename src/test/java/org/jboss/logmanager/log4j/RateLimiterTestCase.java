@@ -0,0 +1,148 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.Logger;
+import org.jboss.logmanager.ExtLogRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class RateLimiterTestCase extends AbstractTestCase {
+    private static final String LOGGER_NAME = RateLimiterTestCase.class.getName();
+
+    private final AtomicLong clock = new AtomicLong(-TimeUnit.HOURS.toNanos(1L));
+    private org.jboss.logmanager.Logger lmLogger;
+    private TestQueueHandler handler;
+
+    @BeforeEach
+    public void setup() {
+        lmLogger = org.jboss.logmanager.Logger.getLogger(LOGGER_NAME);
+        handler = new TestQueueHandler();
+        lmLogger.addHandler(handler);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        lmLogger.removeHandler(handler);
+    }
+
+    @Test
+    public void testRateLimit() {
+        final Logger logger = createLogger(2, 2, false);
+        for (int i = 0; i < 5; i++) {
+            logger.warn("Retry {} failed", i);
+        }
+        // Events more specific than the limited level are not limited
+        logger.error("Error message");
+        Assertions.assertEquals(List.of("Retry 0 failed", "Retry 1 failed", "Error message"), pollAll());
+
+        // Half a second refills a single permit
+        advance(500L);
+        logger.warn("Retry {} failed", 5);
+        logger.warn("Retry {} failed", 6);
+        Assertions.assertEquals(List.of("Suppressed 3 log messages", "Retry 5 failed"), pollAll());
+
+        advance(1000L);
+        logger.info("Info message");
+        logger.info("Info message");
+        Assertions.assertEquals(List.of("Suppressed 1 log message", "Info message", "Info message"), pollAll());
+    }
+
+    @Test
+    public void testRateLimitPerTemplate() {
+        final Logger logger = createLogger(1, 1, true);
+        for (int i = 0; i < 3; i++) {
+            logger.warn("First {}", i);
+            logger.warn("Second {}", i);
+        }
+        Assertions.assertEquals(List.of("First 0", "Second 0"), pollAll());
+
+        advance(1000L);
+        logger.warn("Second {}", 3);
+        Assertions.assertEquals(List.of("Suppressed 2 log messages matching \"Second {}\"", "Second 3"), pollAll());
+    }
+
+    @Test
+    public void testSummaryRecord() {
+        final Logger logger = createLogger(1, 1, false);
+        logger.warn("Test message");
+        logger.warn("Test message");
+        advance(1000L);
+        logger.warn("Test message");
+        handler.pollFirst();
+        final ExtLogRecord summary = handler.pollFirst();
+        Assertions.assertNotNull(summary);
+        Assertions.assertEquals("Suppressed 1 log message", summary.getMessage());
+        Assertions.assertEquals(org.jboss.logmanager.Level.WARN, summary.getLevel());
+        Assertions.assertEquals(LOGGER_NAME, summary.getLoggerName());
+    }
+
+    @Test
+    public void testFlushSuppressed() {
+        final JBossLogger logger = createLogger(1, 1, true);
+        logger.warn("First {}", 0);
+        logger.warn("First {}", 1);
+        logger.info("Second {}", 0);
+        logger.info("Second {}", 1);
+        logger.info("Second {}", 2);
+        Assertions.assertEquals(List.of("First 0", "Second 0"), pollAll());
+
+        // The events which are still suppressed are reported, e.g. when the logger context is closed
+        logger.flushSuppressed();
+        final Map<String, org.jboss.logmanager.Level> summaries = new HashMap<>();
+        ExtLogRecord record;
+        while ((record = handler.pollFirst()) != null) {
+            summaries.put(record.getMessage(), (org.jboss.logmanager.Level) record.getLevel());
+        }
+        Assertions.assertEquals(Map.of("Suppressed 1 log message matching \"First {}\"", org.jboss.logmanager.Level.WARN,
+                "Suppressed 2 log messages matching \"Second {}\"", org.jboss.logmanager.Level.INFO), summaries);
+        // Nothing left to report
+        logger.flushSuppressed();
+        Assertions.assertTrue(handler.isEmpty());
+    }
+
+    private JBossLogger createLogger(final int rate, final int burst, final boolean perTemplate) {
+        final RateLimiter rateLimiter = new RateLimiter(rate, burst, Level.WARN, perTemplate, clock::get);
+        return new JBossLogger(lmLogger, null, new JBossLogger.Options().rateLimiter(rateLimiter));
+    }
+
+    private void advance(final long millis) {
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    private List<String> pollAll() {
+        final List<String> result = new ArrayList<>();
+        ExtLogRecord record;
+        while ((record = handler.pollFirst()) != null) {
+            result.add(record.getMessage());
+        }
+        return result;
+    }
+}
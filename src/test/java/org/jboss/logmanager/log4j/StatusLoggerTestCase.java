@@ -20,12 +20,20 @@
 package org.jboss.logmanager.log4j;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.spi.LoggerContext;
 import org.apache.logging.log4j.status.StatusListener;
 import org.apache.logging.log4j.status.StatusLogger;
+import org.jboss.logmanager.ExtLogRecord;
 import org.jboss.logmanager.Level;
+import org.jboss.logmanager.LogContext;
+import org.jboss.logmanager.MDC;
+import org.jboss.logmanager.NDC;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -70,6 +78,17 @@ public class StatusLoggerTestCase extends AbstractTestCase {
                 "Expected to find " + JBossStatusListener.class.getName() + " registered: " + statusLogger.getListeners());
     }
 
+    @Test
+    public void testRemoveListener() {
+        final LogContext logContext = LogContext.create();
+        JBossStatusListener.registerIfAbsent(logContext);
+        JBossStatusListener.registerIfAbsent(logContext);
+        Assertions.assertEquals(1, countListeners(logContext));
+
+        JBossStatusListener.remove(logContext);
+        Assertions.assertEquals(0, countListeners(logContext));
+    }
+
     @Test
     public void testError() {
         // Log an error which should show up on the handler
@@ -93,6 +112,90 @@ public class StatusLoggerTestCase extends AbstractTestCase {
         Assertions.assertEquals("Test info message 2", handler.pollFormatted());
     }
 
+    @Test
+    public void testThreadName() throws Exception {
+        final Thread thread = new Thread(() -> statusLogger.error("Test status message"), "status-thread");
+        thread.start();
+        thread.join();
+        final ExtLogRecord record = handler.poll();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("Test status message", record.getMessage());
+        Assertions.assertEquals("status-thread", record.getThreadName());
+    }
+
+    @Test
+    public void testDeliveredByOtherThread() throws Exception {
+        // A status event queued while another thread delivers events keeps the state of the thread which logged it
+        final AtomicReference<Thread> loggingThread = new AtomicReference<>();
+        final TestQueueHandler delivering = new TestQueueHandler() {
+            @Override
+            protected void doPublish(final ExtLogRecord record) {
+                if (record.getMessage().equals("Test status message 1")) {
+                    final Thread thread = new Thread(() -> {
+                        // The MDC is inherited from the delivering thread
+                        MDC.clear();
+                        MDC.put("status.key", "status.value");
+                        NDC.push("status.ndc");
+                        try {
+                            statusLogger.error("Test status message 2");
+                        } finally {
+                            NDC.clear();
+                            MDC.clear();
+                        }
+                    }, "status-thread");
+                    loggingThread.set(thread);
+                    thread.start();
+                    try {
+                        thread.join();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        lmLogger.addHandler(delivering);
+        MDC.put("delivering.key", "delivering.value");
+        NDC.push("delivering.ndc");
+        try {
+            statusLogger.error("Test status message 1");
+        } finally {
+            NDC.clear();
+            MDC.clear();
+            lmLogger.removeHandler(delivering);
+        }
+        Assertions.assertNotNull(handler.pollFirst());
+        final ExtLogRecord record = handler.pollFirst();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("Test status message 2", record.getMessage());
+        Assertions.assertEquals("status-thread", record.getThreadName());
+        Assertions.assertEquals(loggingThread.get().getId(), record.getLongThreadID());
+        Assertions.assertEquals("status.ndc", record.getNdc());
+        Assertions.assertEquals(Map.of("status.key", "status.value"), record.getMdcCopy());
+    }
+
+    @Test
+    public void testReentrantStatus() {
+        // A status event logged while an event is delivered is queued and delivered after the current event
+        final List<String> delivered = new ArrayList<>();
+        final TestQueueHandler reentrant = new TestQueueHandler() {
+            @Override
+            protected void doPublish(final ExtLogRecord record) {
+                delivered.add(record.getMessage());
+                if (record.getMessage().equals("Test status message 1")) {
+                    statusLogger.error("Test status message 2");
+                    delivered.add("Returned");
+                }
+            }
+        };
+        lmLogger.addHandler(reentrant);
+        try {
+            statusLogger.error("Test status message 1");
+        } finally {
+            lmLogger.removeHandler(reentrant);
+        }
+        Assertions.assertEquals(List.of("Test status message 1", "Returned", "Test status message 2"), delivered);
+    }
+
     @Test
     public void testConfiguration() throws Exception {
         final URI config = LoggerContextTestCase.class.getResource("/log4j2.xml").toURI();
@@ -105,6 +208,23 @@ public class StatusLoggerTestCase extends AbstractTestCase {
                 String.format("Expected the log message to contain %s. Found %s", config, foundMsg));
     }
 
+    private int countListeners(final LogContext logContext) {
+        final org.jboss.logmanager.Logger logger = logContext.getLogger("org.jboss.logmanager.log4j.status");
+        // Log an error which is delivered to the logger of the log context by each registered listener
+        final TestQueueHandler handler = new TestQueueHandler();
+        logger.addHandler(handler);
+        try {
+            statusLogger.error("Count listeners");
+            int count = 0;
+            while (handler.pollFirst() != null) {
+                count++;
+            }
+            return count;
+        } finally {
+            logger.removeHandler(handler);
+        }
+    }
+
     private void checkEmpty(final boolean expectEmpty) {
         if (handler.isEmpty() != expectEmpty) {
             final StringBuilder msg = new StringBuilder("Expect the data to ");
@@ -19,9 +19,16 @@
 
 package org.jboss.logmanager.log4j;
 
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.CloseableThreadContext;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.spi.ObjectThreadContextMap;
+import org.apache.logging.log4j.util.StringMap;
+import org.jboss.logmanager.ExtLogRecord;
 import org.jboss.logmanager.MDC;
 import org.jboss.logmanager.NDC;
 import org.jboss.logmanager.formatters.PatternFormatter;
@@ -105,6 +112,129 @@ public class ThreadContextMapTestCase extends AbstractTestCase {
         Assertions.assertEquals("", handler.pollFormatted());
     }
 
+    @Test
+    public void otherThreadContextMap() {
+        final String key = "test.key";
+        final TestQueueHandler handler = new TestQueueHandler(new PatternFormatter("%X{" + key + "}"));
+        org.jboss.logmanager.Logger.getLogger("").addHandler(handler);
+        System.setProperty("log4j2.threadContextMap", "org.apache.logging.log4j.spi.DefaultThreadContextMap");
+        try {
+            ThreadContext.init();
+            Assertions.assertFalse(ThreadContext.getThreadContextMap() instanceof ThreadContextMDCMap);
+            ThreadContext.put(key, "test value");
+            Assertions.assertNull(MDC.get(key));
+
+            final Logger logger = LogManager.getLogger();
+            logger.info("Test message");
+            Assertions.assertEquals("test value", handler.pollFormatted());
+
+            final ThreadContextSnapshot snapshot = ThreadContextSnapshot.capture();
+            ThreadContext.put(key, "changed value");
+            try (ThreadContextSnapshot.Scope ignored = snapshot.restore()) {
+                Assertions.assertEquals("test value", ThreadContext.get(key));
+            }
+            Assertions.assertEquals("changed value", ThreadContext.get(key));
+        } finally {
+            ThreadContext.clearMap();
+            System.clearProperty("log4j2.threadContextMap");
+            ThreadContext.init();
+        }
+        Assertions.assertTrue(ThreadContext.getThreadContextMap() instanceof ThreadContextMDCMap);
+    }
+
+    @Test
+    public void putAllRemoveAll() {
+        ThreadContext.putAll(Map.of("key-1", "value-1", "key-2", "value-2"));
+        Assertions.assertEquals("value-1", MDC.get("key-1"));
+        Assertions.assertEquals("value-2", MDC.get("key-2"));
+
+        ThreadContext.removeAll(List.of("key-1", "key-2"));
+        Assertions.assertTrue(MDC.isEmpty());
+        Assertions.assertNull(ThreadContext.getImmutableContext().get("key-1"));
+
+        try (CloseableThreadContext.Instance ignored = CloseableThreadContext.putAll(Map.of("key-3", "value-3"))) {
+            Assertions.assertEquals("value-3", MDC.get("key-3"));
+        }
+        Assertions.assertTrue(MDC.isEmpty());
+    }
+
+    @Test
+    public void objectValues() {
+        final ObjectThreadContextMap map = (ObjectThreadContextMap) ThreadContext.getThreadContextMap();
+        final Object value = new Object();
+        map.putValue("test.key", value);
+        Assertions.assertSame(value, MDC.getObject("test.key"));
+        Assertions.assertSame(value, map.getValue("test.key"));
+
+        map.putAllValues(Map.of("test.key", 1, "other.key", 2));
+        Assertions.assertEquals(1, (Integer) map.getValue("test.key"));
+        Assertions.assertEquals("2", ThreadContext.get("other.key"));
+
+        map.putValue("test.key", null);
+        Assertions.assertFalse(map.containsKey("test.key"));
+    }
+
+    @Test
+    public void readOnlyContextData() {
+        final StringMap empty = ThreadContext.getThreadContextMap().getReadOnlyContextData();
+        Assertions.assertTrue(empty.isFrozen());
+        Assertions.assertTrue(empty.isEmpty());
+
+        // The data is a snapshot of the MDC and should not reflect changes
+        MDC.put("test.key", "test value");
+        Assertions.assertTrue(empty.isEmpty());
+        final StringMap data = ThreadContext.getThreadContextMap().getReadOnlyContextData();
+        Assertions.assertTrue(data.isFrozen());
+        Assertions.assertEquals(1, data.size());
+        Assertions.assertEquals("test value", data.getValue("test.key"));
+        Assertions.assertTrue(data.containsKey("test.key"));
+        Assertions.assertEquals(Map.of("test.key", "test value"), data.toMap());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> data.putValue("other.key", "other value"));
+        // The snapshot is reused until the MDC changes
+        Assertions.assertSame(data, ThreadContext.getThreadContextMap().getReadOnlyContextData());
+
+        MDC.put("test.key", "changed value");
+        Assertions.assertEquals("test value", data.getValue("test.key"));
+        final StringMap changed = ThreadContext.getThreadContextMap().getReadOnlyContextData();
+        Assertions.assertEquals("changed value", changed.getValue("test.key"));
+
+        // Changes through the ThreadContext create a new snapshot
+        ThreadContext.put("other.key", "other value");
+        final StringMap added = ThreadContext.getThreadContextMap().getReadOnlyContextData();
+        Assertions.assertNotSame(changed, added);
+        Assertions.assertEquals(Map.of("test.key", "changed value", "other.key", "other value"), added.toMap());
+        ThreadContext.remove("other.key");
+        Assertions.assertEquals(Map.of("test.key", "changed value"),
+                ThreadContext.getThreadContextMap().getReadOnlyContextData().toMap());
+
+        // Entries removed directly from the MDC are detected as well
+        MDC.remove("test.key");
+        MDC.put("third.key", "third value");
+        Assertions.assertEquals(Map.of("third.key", "third value"),
+                ThreadContext.getThreadContextMap().getReadOnlyContextData().toMap());
+    }
+
+    @Test
+    public void copiedRecordMdc() {
+        final String key = "test.key";
+        final TestQueueHandler handler = new TestQueueHandler();
+        org.jboss.logmanager.Logger.getLogger("").addHandler(handler);
+        ThreadContext.put(key, "test value");
+        ThreadContext.put("other.key", "other value");
+
+        final Logger logger = LogManager.getLogger();
+        logger.info("Test message");
+
+        final ExtLogRecord record = handler.poll();
+        Assertions.assertNotNull(record);
+        // Copying the record captures the current MDC which should not change after the copy
+        record.copyAll();
+        ThreadContext.put(key, "changed value");
+        MDC.remove("other.key");
+        Assertions.assertEquals("test value", record.getMdc(key));
+        Assertions.assertEquals(Map.of(key, "test value", "other.key", "other value"), record.getMdcCopy());
+    }
+
     @Test
     public void pushThreadContext() {
         final TestQueueHandler handler = new TestQueueHandler(new PatternFormatter("%x"));
@@ -126,6 +256,34 @@ public class ThreadContextMapTestCase extends AbstractTestCase {
         Assertions.assertEquals("value-1.value-2", handler.pollFormatted());
     }
 
+    @Test
+    public void cachedNdc() {
+        final TestQueueHandler handler = new TestQueueHandler();
+        org.jboss.logmanager.Logger.getLogger("").addHandler(handler);
+        final Logger logger = LogManager.getLogger();
+
+        ThreadContext.push("value-1");
+        ThreadContext.push("value-2");
+        logger.info("Test message 1");
+        logger.info("Test message 2");
+        final String ndc = handler.pollFirst().getNdc();
+        Assertions.assertEquals("value-1.value-2", ndc);
+        // The stack did not change, the same value should be used
+        Assertions.assertSame(ndc, handler.pollFirst().getNdc());
+
+        ThreadContext.pop();
+        logger.info("Test message 3");
+        Assertions.assertEquals("value-1", handler.pollFirst().getNdc());
+
+        ThreadContext.push("value-3");
+        logger.info("Test message 4");
+        Assertions.assertEquals("value-1.value-3", handler.pollFirst().getNdc());
+
+        ThreadContext.clearStack();
+        logger.info("Test message 5");
+        Assertions.assertEquals("", handler.pollFirst().getNdc());
+    }
+
     @Test
     public void removeThreadContext() {
         final String key = "test.clear.key";
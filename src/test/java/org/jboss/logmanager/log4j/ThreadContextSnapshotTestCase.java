@@ -0,0 +1,152 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ *
+ * Copyright 2023 Red Hat, Inc., and individual contributors
+ * as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.jboss.logmanager.log4j;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.ThreadContext;
+import org.jboss.logmanager.ExtLogRecord;
+import org.jboss.logmanager.MDC;
+import org.jboss.logmanager.NDC;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+public class ThreadContextSnapshotTestCase extends AbstractTestCase {
+    private ExecutorService executor;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        ThreadContext.clearAll();
+        executor = Executors.newSingleThreadExecutor();
+        // Start the thread before the context is set, the MDC is inherited by child threads
+        executor.submit(() -> {
+        }).get(5, TimeUnit.SECONDS);
+    }
+
+    @AfterEach
+    public void shutdown() throws Exception {
+        ThreadContext.clearAll();
+        NDC.clear();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void restore() {
+        ThreadContext.put("test.key", "test value");
+        ThreadContext.push("test-ndc");
+        final ThreadContextSnapshot snapshot = ThreadContextSnapshot.capture();
+
+        ThreadContext.clearAll();
+        ThreadContext.put("other.key", "other value");
+        try (ThreadContextSnapshot.Scope ignored = snapshot.restore()) {
+            Assertions.assertEquals(Map.of("test.key", "test value"), ThreadContext.getContext());
+            Assertions.assertEquals("test-ndc", ThreadContext.peek());
+        }
+        // The previous context is restored
+        Assertions.assertEquals(Map.of("other.key", "other value"), ThreadContext.getContext());
+        Assertions.assertEquals(0, ThreadContext.getDepth());
+    }
+
+    @Test
+    public void snapshotIsImmutable() {
+        ThreadContext.put("test.key", "test value");
+        final ThreadContextSnapshot snapshot = ThreadContextSnapshot.capture();
+        ThreadContext.put("test.key", "changed value");
+        ThreadContext.push("test-ndc");
+
+        try (ThreadContextSnapshot.Scope ignored = snapshot.restore()) {
+            Assertions.assertEquals("test value", ThreadContext.get("test.key"));
+            Assertions.assertEquals(0, ThreadContext.getDepth());
+        }
+        Assertions.assertEquals("changed value", ThreadContext.get("test.key"));
+        Assertions.assertEquals("test-ndc", ThreadContext.peek());
+    }
+
+    @Test
+    public void restoreNdc() throws Exception {
+        NDC.push("first");
+        NDC.push("second");
+        final ThreadContextSnapshot snapshot = ThreadContextSnapshot.capture();
+        NDC.clear();
+        NDC.push("other");
+
+        try (ThreadContextSnapshot.Scope ignored = snapshot.restore()) {
+            Assertions.assertEquals(2, NDC.getDepth());
+            Assertions.assertEquals("first.second", NDC.get());
+        }
+        Assertions.assertEquals("other", NDC.get());
+
+        final String ndc = executor.submit(snapshot.callable(NDC::get)).get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals("first.second", ndc);
+        Assertions.assertEquals(0, executor.submit(NDC::getDepth).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void executor() throws Exception {
+        final TestQueueHandler handler = new TestQueueHandler();
+        org.jboss.logmanager.Logger.getLogger("").addHandler(handler);
+        final Logger logger = LogManager.getLogger();
+
+        ThreadContext.put("test.key", "test value");
+        ThreadContext.push("test-ndc");
+        final CompletableFuture<Map<String, String>> future = new CompletableFuture<>();
+        ThreadContextSnapshot.executor(executor).execute(() -> {
+            logger.info("Test message");
+            future.complete(ThreadContext.getContext());
+        });
+        Assertions.assertEquals(Map.of("test.key", "test value"), future.get(5, TimeUnit.SECONDS));
+
+        final ExtLogRecord record = handler.poll();
+        Assertions.assertNotNull(record);
+        Assertions.assertEquals("test value", record.getMdc("test.key"));
+        Assertions.assertEquals("test-ndc", record.getNdc());
+
+        // The context of the executor thread has been restored
+        final Map<String, Object> mdc = executor.submit(MDC::copyObject).get(5, TimeUnit.SECONDS);
+        Assertions.assertTrue(mdc.isEmpty());
+    }
+
+    @Test
+    public void completableFuture() throws Exception {
+        ThreadContext.put("test.key", "test value");
+        final ThreadContextSnapshot snapshot = ThreadContextSnapshot.capture();
+        ThreadContext.clearMap();
+
+        final String result = CompletableFuture
+                .supplyAsync(snapshot.supplier(() -> ThreadContext.get("test.key")), executor)
+                .thenApplyAsync(snapshot.function(value -> value + ":" + ThreadContext.get("test.key")), executor)
+                .get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals("test value:test value", result);
+        Assertions.assertTrue(ThreadContext.isEmpty());
+
+        final String called = executor.submit(snapshot.callable(() -> ThreadContext.get("test.key")))
+                .get(5, TimeUnit.SECONDS);
+        Assertions.assertEquals("test value", called);
+    }
+}